@@ -1,61 +1,85 @@
 package com.juhao666.asac.client;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.juhao666.asac.config.AsAcProperties;
+import com.juhao666.asac.http.AsAcHttpClients;
+import com.juhao666.asac.http.LongPollExecutor;
+import com.juhao666.asac.http.RegistryServerList;
+import com.juhao666.asac.parser.ConfigParserRegistry;
 import io.micrometer.common.util.StringUtils;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
-import org.springframework.cloud.context.refresh.ContextRefresher;
 import org.springframework.core.env.ConfigurableEnvironment;
-import org.springframework.core.env.MapPropertySource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
-
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Future;
 @Component
 public class ConfigListener implements CommandLineRunner {
 
     private final String group = "DEFAULT_GROUP";
     private final AsAcProperties asAcProperties;
     private final RestTemplate restTemplate;
+    private final RegistryServerList serverList;
     private final ObjectMapper objectMapper;
     private final ConfigurableEnvironment environment;
-    private final ContextRefresher contextRefresher;
-    private final AtomicReference<String> currentMd5 = new AtomicReference<>();
+    private final ConfigRefresher configRefresher;
+    private final LongPollExecutor longPollExecutor;
+    private final ConfigParserRegistry configParserRegistry;
+    // 每个dataId当前的MD5，没有配置时为空串
+    private final ConcurrentHashMap<String, String> configMd5s = new ConcurrentHashMap<>();
+    // 每个dataId解析出的配置项
+    private final ConcurrentHashMap<String, Map<String, String>> fileProperties = new ConcurrentHashMap<>();
+    // 按优先级合并后的配置项
     private final ConcurrentHashMap<String, String> configProperties = new ConcurrentHashMap<>();
+    private List<String> dataIds;
     private volatile boolean listening = false;
-    private Thread listenerThread;
+    private Future<?> listenerFuture;
 
     public ConfigListener(
             AsAcProperties asAcProperties,
-            RestTemplate restTemplate,
+            AsAcHttpClients httpClients,
+            RegistryServerList serverList,
             ObjectMapper objectMapper,
             ConfigurableEnvironment environment,
-            ContextRefresher contextRefresher) {
+            ConfigRefresher configRefresher,
+            LongPollExecutor longPollExecutor,
+            ConfigParserRegistry configParserRegistry) {
 
         this.asAcProperties = asAcProperties;
-        this.restTemplate = restTemplate;
+        // 配置拉取和长轮询走长轮询连接池，读超时大于注册中心的挂起时间
+        this.restTemplate = httpClients.getLongPollRestTemplate();
+        this.serverList = serverList;
         this.objectMapper = objectMapper;
         this.environment = environment;
-        this.contextRefresher = contextRefresher;
+        this.configRefresher = configRefresher;
+        this.longPollExecutor = longPollExecutor;
+        this.configParserRegistry = configParserRegistry;
     }
 
     // DataId: [application.name]-[env].[yaml|yml|properties]
@@ -70,9 +94,21 @@ public class ConfigListener implements CommandLineRunner {
         return applicationName  + env + ".properties";
     }
 
+    /**
+     * 监听的DataId列表，优先级由低到高：
+     * 共享配置(asac.shared-data-ids) -> [application.name].properties -> [application.name]-[env].properties
+     */
+    private List<String> getDataIds() {
+        Set<String> ids = new LinkedHashSet<>(asAcProperties.getSharedDataIds());
+        ids.add(environment.getProperty("spring.application.name") + ".properties");
+        ids.add(getDataId());
+        return new ArrayList<>(ids);
+    }
+
     @PostConstruct
     public void init() {
         System.out.println("🚀 配置监听器初始化...");
+        dataIds = getDataIds();
         // 初始化时获取配置
         fetchInitialConfig();
         // 启动监听线程
@@ -90,8 +126,8 @@ public class ConfigListener implements CommandLineRunner {
      */
     public void stopListening() {
         listening = false;
-        if (listenerThread != null) {
-            listenerThread.interrupt();
+        if (listenerFuture != null) {
+            listenerFuture.cancel(true);
         }
     }
 
@@ -99,34 +135,124 @@ public class ConfigListener implements CommandLineRunner {
      * 获取初始配置
      */
     private void fetchInitialConfig() {
+        for (String dataId : dataIds) {
+            // 先加载本地缓存，拉取时带上MD5，配置未变更时注册中心只返回304
+            loadCachedConfig(dataId);
+            if (fetchConfig(dataId)) {
+                System.out.println("✅ 获取到初始配置: " + dataId);
+            }
+        }
+        mergeConfigProperties();
+        refreshConfigProperties();
+    }
+
+    /**
+     * 拉取单个配置并更新本地缓存，返回配置是否存在；拉取或解析失败时记录日志并返回false
+     */
+    private boolean fetchConfig(String dataId) {
         try {
-            String url = UriComponentsBuilder.fromHttpUrl(asAcProperties.getRegistryUrl())
-                    .path("/config")
-                    .queryParam("dataId", getDataId())
-                    .queryParam("group", group)
-                    .toUriString();
+            return fetchRemoteConfig(dataId);
+        } catch (Exception e) {
+            System.err.println("❌ 获取配置失败: " + dataId + ", " + e.getMessage());
+        }
+        return false;
+    }
 
-            String response = restTemplate.getForObject(url, String.class);
-            Map<String, Object> result = objectMapper.readValue(response, Map.class);
+    /**
+     * 拉取单个配置并更新本地缓存，返回配置是否存在
+     * 已知MD5时带上If-None-Match，配置未变更时注册中心返回304，沿用本地配置；
+     * 解析成功后才记录新的MD5，解析失败时保留上一次的配置项和MD5，长轮询会再次报告该配置变更
+     */
+    private boolean fetchRemoteConfig(String dataId) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        String md5 = configMd5s.get(dataId);
+        if (StringUtils.isNotBlank(md5)) {
+            headers.setIfNoneMatch("\"" + md5 + "\"");
+        }
+        ResponseEntity<String> response = serverList.execute(baseUrl -> restTemplate.exchange(
+                UriComponentsBuilder.fromHttpUrl(baseUrl)
+                        .path("/config")
+                        .queryParam("dataId", dataId)
+                        .queryParam("group", group)
+                        .toUriString(),
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class
+        ));
+        if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            return true;
+        }
 
-            if (Boolean.TRUE.equals(result.get("success"))) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> configData = (Map<String, Object>) result.get("data");
-                if (configData != null) {
-                    String content = (String) configData.get("content");
-                    currentMd5.set((String) configData.get("md5"));
+        Map<String, Object> result = objectMapper.readValue(response.getBody(), Map.class);
+
+        if (Boolean.TRUE.equals(result.get("success"))) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> configData = (Map<String, Object>) result.get("data");
+            if (configData != null) {
+                String content = (String) configData.get("content");
+                fileProperties.put(dataId, configParserRegistry.parse(content, (String) configData.get("type"), dataId));
+                configMd5s.put(dataId, (String) configData.get("md5"));
+                writeCachedConfig(dataId, content);
+                return true;
+            }
+        }
+        // 配置不存在（或已删除）
+        configMd5s.remove(dataId);
+        fileProperties.remove(dataId);
+        writeCachedConfig(dataId, null);
+        return false;
+    }
 
-                    // 解析配置
-                    parseAndUpdateConfig(content);
+    /**
+     * 加载本地缓存的配置，MD5按内容重新计算
+     */
+    private void loadCachedConfig(String dataId) {
+        Path cacheFile = getCacheFile(dataId);
+        if (!Files.exists(cacheFile)) {
+            return;
+        }
+        try {
+            String content = Files.readString(cacheFile, StandardCharsets.UTF_8);
+            // 本地缓存不记录配置类型，按dataId扩展名选择解析器；解析成功后才记录MD5，否则启动时会跳过重新拉取
+            fileProperties.put(dataId, configParserRegistry.parse(content, null, dataId));
+            configMd5s.put(dataId, calculateMD5(content));
+        } catch (Exception e) {
+            System.err.println("❌ 读取本地配置缓存失败: " + cacheFile + ", " + e.getMessage());
+        }
+    }
 
-                    System.out.println("✅ 获取到初始配置: " + configData.get("dataId"));
-                }
+    /**
+     * 写入本地配置缓存，content为null时删除缓存
+     */
+    private void writeCachedConfig(String dataId, String content) {
+        Path cacheFile = getCacheFile(dataId);
+        try {
+            if (content == null) {
+                Files.deleteIfExists(cacheFile);
+                return;
             }
+            Files.createDirectories(cacheFile.getParent());
+            Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            Files.writeString(tempFile, content, StandardCharsets.UTF_8);
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (Exception e) {
-            System.err.println("❌ 获取初始配置失败: " + e.getMessage());
+            System.err.println("❌ 写入本地配置缓存失败: " + cacheFile + ", " + e.getMessage());
         }
     }
 
+    private Path getCacheFile(String dataId) {
+        return Paths.get(asAcProperties.getConfigCacheDir(), group, dataId);
+    }
+
+    private String calculateMD5(String content) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
     /**
      * 启动配置监听
      */
@@ -136,7 +262,8 @@ public class ConfigListener implements CommandLineRunner {
         }
 
         listening = true;
-        listenerThread = new Thread(() -> {
+        // 所有DataId共用一个批量长轮询循环，运行在共享的长轮询执行器上
+        listenerFuture = longPollExecutor.submit(() -> {
             System.out.println("🔍 开始监听配置变更...");
 
             while (listening) {
@@ -154,106 +281,102 @@ public class ConfigListener implements CommandLineRunner {
                     }
                 }
             }
-        }, "Config-Listener-Thread");
-
-        listenerThread.setDaemon(true);
-        listenerThread.start();
+        });
     }
 
     /**
-     * 长轮询配置变更
+     * 长轮询配置变更 - 一个连接批量监听所有DataId
      */
     private void longPolling() {
-        String url = UriComponentsBuilder.fromHttpUrl(asAcProperties.getRegistryUrl())
-                .path("/config/listener")
-                .queryParam("dataId", getDataId())
-                .queryParam("group", group)
-                .queryParam("md5", currentMd5.get())
-                .toUriString();
+        // 每行一个 dataId:group:md5
+        StringBuilder listeningConfigs = new StringBuilder();
+        for (String dataId : dataIds) {
+            listeningConfigs.append(dataId).append(':').append(group).append(':')
+                    .append(configMd5s.getOrDefault(dataId, "")).append('\n');
+        }
 
         HttpHeaders headers = new HttpHeaders();
         headers.set("Accept", MediaType.APPLICATION_JSON_VALUE);
         headers.set("User-Agent", "SpringBootConfigClient/1.0");
+        headers.setContentType(MediaType.TEXT_PLAIN);
 
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+        HttpEntity<String> entity = new HttpEntity<>(listeningConfigs.toString(), headers);
 
         try {
-            String response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
+            // 当前节点宕机时在本次长轮询内切换到其他节点，不必等下一轮
+            String response = serverList.execute(baseUrl -> restTemplate.exchange(
+                    UriComponentsBuilder.fromHttpUrl(baseUrl)
+                            .path("/config/listener/batch")
+                            .toUriString(),
+                    HttpMethod.POST,
                     entity,
                     String.class
-            ).getBody();
+            ).getBody());
 
             Map<String, Object> result = objectMapper.readValue(response, Map.class);
 
-            if (Boolean.TRUE.equals(result.get("success"))) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> configData = (Map<String, Object>) result.get("data");
-                if (configData != null) {
-                    handleConfigChange(configData);
-                }
-            } else if ("监听超时".equals(result.get("message"))) {
+            if (!Boolean.TRUE.equals(result.get("success"))) {
+                throw new IllegalStateException(String.valueOf(result.get("message")));
+            }
+            @SuppressWarnings("unchecked")
+            List<String> changedKeys = (List<String>) result.get("data");
+            if (changedKeys == null || changedKeys.isEmpty()) {
                 // 长轮询超时，继续下一次
                 System.out.println("⏰ 长轮询超时，继续监听...");
+                return;
             }
+            handleConfigChange(changedKeys);
         } catch (ResourceAccessException e) {
             // 连接超时，继续下一次
             System.out.println("⏰ 长轮询超时，继续监听...");
-            //todo
-            //Thread.sleep(5000);
-        } catch (JsonMappingException e) {
-            throw new RuntimeException(e);
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * 处理配置变更
+     * 处理配置变更：只拉取发生变更的DataId
+     * 有DataId拉取或解析失败时，先应用其余成功的变更再抛出异常，由监听循环等待后重试
      */
-    private void handleConfigChange(Map<String, Object> configData) {
-        String newMd5 = (String) configData.get("md5");
-        String content = (String) configData.get("content");
-        long version = ((Number) configData.get("version")).longValue();
-
+    private void handleConfigChange(List<String> changedKeys) {
         System.out.println("🔄 检测到配置变更:");
-        System.out.println("  - DataId: " + configData.get("dataId"));
-        System.out.println("  - Version: " + version);
-        System.out.println("  - MD5: " + newMd5);
-
-        // 更新MD5
-        currentMd5.set(newMd5);
+        List<String> failed = new ArrayList<>();
+        for (String key : changedKeys) {
+            String dataId = key.substring(0, key.lastIndexOf(':'));
+            try {
+                fetchRemoteConfig(dataId);
+            } catch (Exception e) {
+                System.err.println("❌ 获取配置失败: " + dataId + ", " + e.getMessage());
+                failed.add(dataId);
+            }
+            System.out.println("  - DataId: " + dataId);
+            System.out.println("  - MD5: " + configMd5s.getOrDefault(dataId, ""));
+        }
 
-        // 解析并更新配置
-        parseAndUpdateConfig(content);
+        // 合并各DataId的配置
+        mergeConfigProperties();
 
         // 触发配置刷新事件
         onConfigRefreshed();
+
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("配置拉取或解析失败，稍后重试: " + failed);
+        }
     }
 
     /**
-     * 解析并更新配置
+     * 按DataId优先级合并配置，高优先级覆盖低优先级，已删除的配置项一并移除
      */
-    private void parseAndUpdateConfig(String content) {
-        if (content == null || content.trim().isEmpty()) {
-            return;
-        }
-
-        String[] lines = content.split("\n");
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
-                continue;
-            }
-
-            String[] parts = trimmed.split("=", 2);
-            if (parts.length == 2) {
-                String key = parts[0].trim();
-                String value = parts[1].trim();
-                configProperties.put(key, value);
+    private void mergeConfigProperties() {
+        Map<String, String> merged = new HashMap<>();
+        for (String dataId : dataIds) {
+            Map<String, String> properties = fileProperties.get(dataId);
+            if (properties != null) {
+                merged.putAll(properties);
             }
         }
+        configProperties.putAll(merged);
+        configProperties.keySet().retainAll(merged.keySet());
 
         System.out.println("✅ 配置已更新，当前配置项数量: " + configProperties.size());
     }
@@ -262,9 +385,6 @@ public class ConfigListener implements CommandLineRunner {
      * 配置刷新回调
      */
     private void onConfigRefreshed() {
-        // 这里可以触发Spring的EnvironmentChangeEvent
-        // 或者刷新@ConfigurationProperties bean
-
         System.out.println("🔄 触发配置刷新...");
 
         // 示例：打印所有配置
@@ -275,22 +395,13 @@ public class ConfigListener implements CommandLineRunner {
     }
 
     private void refreshConfigProperties() {
-        // 移除旧的 property source（如果存在）
-        environment.getPropertySources().remove("dynamicConfig");
-
-        // 创建新的 MapPropertySource
-        MapPropertySource propertySource = new MapPropertySource(
-                "dynamicConfig",
-                new HashMap<>(configProperties) // 深拷贝避免并发问题
-        );
-
-        // 添加到 environment 最前面（优先级高）
-        environment.getPropertySources().addFirst(propertySource);
+        // 只更新 Environment，启动阶段Bean尚未创建，不需要刷新
+        configRefresher.apply(configProperties);
     }
 
     private void refresh() {
-        refreshConfigProperties(); // 先更新 Environment
-        Set<String> keys = contextRefresher.refresh(); // 触发 @RefreshScope Bean 重建
+        // 只对变化的配置项发布事件，并只重建引用了这些配置项的 @RefreshScope Bean
+        Set<String> keys = configRefresher.refresh(configProperties);
         System.out.println("Refreshed keys: " + keys);
     }
     /**
@@ -316,8 +427,8 @@ public class ConfigListener implements CommandLineRunner {
     public void run(String... args) {
         System.out.println("==========================================");
         System.out.println("Spring Boot 配置监听客户端启动完成");
-        System.out.println("监听配置: " + getDataId());
-        System.out.println("注册中心: " + asAcProperties.getRegistryUrl());
+        System.out.println("监听配置: " + dataIds);
+        System.out.println("注册中心: " + serverList.getUrls() + "，当前: " + serverList.getCurrentUrl());
         System.out.println("当前配置:");
         configProperties.forEach((key, value) -> {
             System.out.println("  " + key + " = " + value);
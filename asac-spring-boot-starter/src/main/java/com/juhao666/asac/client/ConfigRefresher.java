@@ -0,0 +1,180 @@
+package com.juhao666.asac.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.context.scope.refresh.RefreshScope;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.util.ClassUtils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 增量配置刷新
+ * 替代ContextRefresher.refresh()的全量刷新：
+ * - 对比新旧配置，只计算发生变化（新增、修改、删除）的配置项
+ * - 原地更新dynamicConfig属性源，不再整体替换
+ * - 发布EnvironmentChangeEvent（只带变化的key），由spring-cloud重新绑定@ConfigurationProperties
+ * - 只销毁引用了变化key的@RefreshScope Bean，下次访问时重建；无关的Bean保持不动
+ *
+ * Bean引用的key从@Value占位符和@ConfigurationProperties前缀中解析，
+ * 直接通过Environment读取配置的Bean无法识别，不会被刷新
+ */
+public class ConfigRefresher {
+
+    public static final String PROPERTY_SOURCE_NAME = "dynamicConfig";
+
+    private static final String REFRESH_SCOPE = "refresh";
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{([^:}$]+)");
+
+    private final ConfigurableEnvironment environment;
+    private final ApplicationContext applicationContext;
+    private final ConfigurableListableBeanFactory beanFactory;
+    private final RefreshScope refreshScope;
+
+    // dynamicConfig属性源的内容，原地更新
+    private final Map<String, Object> dynamicConfig = new ConcurrentHashMap<>();
+
+    // Bean类 -> 引用的配置key（以"."结尾的为@ConfigurationProperties前缀），类结构不变，解析一次即可
+    private final Map<Class<?>, Set<String>> referencedKeys = new ConcurrentHashMap<>();
+
+    public ConfigRefresher(ConfigurableEnvironment environment,
+                           ApplicationContext applicationContext,
+                           ConfigurableListableBeanFactory beanFactory,
+                           RefreshScope refreshScope) {
+        this.environment = environment;
+        this.applicationContext = applicationContext;
+        this.beanFactory = beanFactory;
+        this.refreshScope = refreshScope;
+    }
+
+    /**
+     * 只更新Environment，不触发任何刷新 - 用于启动时加载初始配置
+     */
+    public synchronized Set<String> apply(Map<String, String> properties) {
+        if (!environment.getPropertySources().contains(PROPERTY_SOURCE_NAME)) {
+            // 添加到 environment 最前面（优先级高）
+            environment.getPropertySources().addFirst(new MapPropertySource(PROPERTY_SOURCE_NAME, dynamicConfig));
+        }
+
+        Set<String> changedKeys = new LinkedHashSet<>();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            if (!entry.getValue().equals(dynamicConfig.get(entry.getKey()))) {
+                changedKeys.add(entry.getKey());
+            }
+        }
+        for (String key : dynamicConfig.keySet()) {
+            if (!properties.containsKey(key)) {
+                changedKeys.add(key);
+            }
+        }
+
+        for (String key : changedKeys) {
+            String value = properties.get(key);
+            if (value != null) {
+                dynamicConfig.put(key, value);
+            } else {
+                dynamicConfig.remove(key);
+            }
+        }
+        return changedKeys;
+    }
+
+    /**
+     * 更新Environment并只刷新受影响的Bean，返回变化的key
+     */
+    public synchronized Set<String> refresh(Map<String, String> properties) {
+        Set<String> changedKeys = apply(properties);
+        if (changedKeys.isEmpty()) {
+            return changedKeys;
+        }
+
+        applicationContext.publishEvent(new EnvironmentChangeEvent(applicationContext, changedKeys));
+
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            if (!REFRESH_SCOPE.equals(definition.getScope())) {
+                continue;
+            }
+            Class<?> beanType = beanFactory.getType(beanName);
+            if (beanType != null && dependsOn(ClassUtils.getUserClass(beanType), changedKeys)) {
+                refreshScope.refresh(beanName);
+                System.out.println("🔄 刷新Bean: " + beanName);
+            }
+        }
+        return changedKeys;
+    }
+
+    private boolean dependsOn(Class<?> beanType, Set<String> changedKeys) {
+        Set<String> keys = referencedKeys.computeIfAbsent(beanType, this::resolveReferencedKeys);
+        for (String key : keys) {
+            for (String changedKey : changedKeys) {
+                // 空前缀的@ConfigurationProperties从根绑定，任何key都可能相关
+                if (key.isEmpty() || (key.endsWith(".") ? changedKey.startsWith(key) : changedKey.equals(key))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Set<String> resolveReferencedKeys(Class<?> beanType) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (Class<?> type = beanType; type != null && type != Object.class; type = type.getSuperclass()) {
+            ConfigurationProperties configurationProperties = type.getAnnotation(ConfigurationProperties.class);
+            if (configurationProperties != null) {
+                String prefix = !configurationProperties.prefix().isEmpty()
+                        ? configurationProperties.prefix() : configurationProperties.value();
+                keys.add(prefix.isEmpty() ? "" : prefix + ".");
+            }
+            for (Field field : type.getDeclaredFields()) {
+                addPlaceholderKeys(field.getAnnotation(Value.class), keys);
+            }
+            for (Method method : type.getDeclaredMethods()) {
+                addPlaceholderKeys(method.getAnnotation(Value.class), keys);
+                addParameterKeys(method.getParameterAnnotations(), keys);
+            }
+            for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+                addParameterKeys(constructor.getParameterAnnotations(), keys);
+            }
+        }
+        return keys.isEmpty() ? Collections.emptySet() : keys;
+    }
+
+    private void addParameterKeys(Annotation[][] parameterAnnotations, Set<String> keys) {
+        for (Annotation[] annotations : parameterAnnotations) {
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof Value) {
+                    addPlaceholderKeys((Value) annotation, keys);
+                }
+            }
+        }
+    }
+
+    /**
+     * 解析占位符中的key，支持嵌套默认值：${a.b:${c.d:x}} -> a.b, c.d
+     */
+    private void addPlaceholderKeys(Value value, Set<String> keys) {
+        if (value == null) {
+            return;
+        }
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(value.value());
+        while (matcher.find()) {
+            keys.add(matcher.group(1).trim());
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.juhao666.asac.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.juhao666.asac.config.AsAcProperties;
+import com.juhao666.asac.http.LongPollExecutor;
+import com.juhao666.asac.http.RegistryServerList;
+import com.juhao666.asac.model.Result;
+import com.juhao666.asac.model.ServiceInstance;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 服务发现客户端
+ * 在本地缓存订阅服务的实例列表，业务调用直接读内存，不再每次请求注册中心：
+ * - 首次查询某个服务时同步拉取全量并加入订阅
+ * - 后台订阅循环（运行在共享的长轮询执行器上）通过 /instance/subscribe 长轮询接收增量，注册中心一有变更即更新本地缓存
+ * - 按 asac.discovery-refresh-interval 定期全量校准，防止增量丢失导致的偏差
+ * - 注册中心不可用时继续使用本地缓存（stale-on-error）
+ * - 版本号是注册中心节点本地的，每个视图记录拉取它的节点；故障转移到其他节点后以-1订阅，由新节点返回全量
+ */
+@Slf4j
+public class DiscoveryClient {
+
+    private final AsAcProperties properties;
+    private final RestTemplate restTemplate;
+    private final RegistryServerList serverList;
+    private final ObjectMapper objectMapper;
+    private final LongPollExecutor longPollExecutor;
+
+    // 本地服务缓存：serviceName -> 实例视图
+    private final Map<String, ServiceView> serviceCache = new ConcurrentHashMap<>();
+
+    private volatile boolean running = false;
+    private Future<?> subscribeFuture;
+    private long lastFullRefreshTime = System.currentTimeMillis();
+
+    public DiscoveryClient(AsAcProperties properties, RestTemplate restTemplate, RegistryServerList serverList,
+                           ObjectMapper objectMapper, LongPollExecutor longPollExecutor) {
+        this.properties = properties;
+        this.restTemplate = restTemplate;
+        this.serverList = serverList;
+        this.objectMapper = objectMapper;
+        this.longPollExecutor = longPollExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        // 预先订阅配置的服务，首次业务调用不必等待拉取
+        for (String serviceName : properties.getSubscribedServices()) {
+            getInstances(serviceName);
+        }
+
+        running = true;
+        subscribeFuture = longPollExecutor.submit(this::subscribeLoop);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (subscribeFuture != null) {
+            subscribeFuture.cancel(true);
+        }
+    }
+
+    /**
+     * 获取服务的实例列表（只读）
+     * 已订阅的服务直接返回本地缓存；未订阅的服务同步拉取一次并加入订阅，拉取失败时返回空列表
+     */
+    public List<ServiceInstance> getInstances(String serviceName) {
+        ServiceView view = serviceCache.get(serviceName);
+        if (view != null) {
+            return view.instances;
+        }
+        try {
+            view = fetchFull(serviceName);
+            // 并发首次查询时只保留先到的结果，后续由订阅线程更新
+            ServiceView existing = serviceCache.putIfAbsent(serviceName, view);
+            return existing != null ? existing.instances : view.instances;
+        } catch (Exception e) {
+            log.error("Failed to discover service {}: {}", serviceName, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 获取当前已订阅的服务名
+     */
+    public List<String> getSubscribedServices() {
+        return new ArrayList<>(serviceCache.keySet());
+    }
+
+    /**
+     * 获取本地缓存中所有服务的实例ID（含非UP状态的实例），用于清理已下线实例的负载均衡统计
+     */
+    public Set<String> getCachedInstanceIds() {
+        Set<String> instanceIds = new HashSet<>();
+        for (ServiceView view : serviceCache.values()) {
+            instanceIds.addAll(view.instanceMap.keySet());
+        }
+        return instanceIds;
+    }
+
+    /**
+     * 订阅线程：长轮询接收增量，到达全量校准间隔时重新拉取全部已订阅服务
+     */
+    private void subscribeLoop() {
+        while (running) {
+            try {
+                if (System.currentTimeMillis() - lastFullRefreshTime >= properties.getDiscoveryRefreshInterval()) {
+                    refreshAll();
+                }
+                if (serviceCache.isEmpty()) {
+                    Thread.sleep(1000);
+                    continue;
+                }
+                subscribe();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // 注册中心不可用时保留本地缓存，稍后重试
+                log.warn("Service subscription failed, keep using cached instances: {}", e.getMessage());
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void subscribe() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        AtomicReference<String> source = new AtomicReference<>();
+        String response = serverList.execute(baseUrl -> {
+            // 按本次实际请求的节点生成订阅：其他节点拉取的视图版本号在这里没有意义，以-1要求返回全量
+            Map<String, Long> subscriptions = new LinkedHashMap<>();
+            serviceCache.forEach((serviceName, view) ->
+                    subscriptions.put(serviceName, baseUrl.equals(view.source) ? view.revision : -1L));
+            source.set(baseUrl);
+            return restTemplate.exchange(
+                    UriComponentsBuilder.fromHttpUrl(baseUrl)
+                            .path("/instance/subscribe")
+                            .toUriString(),
+                    HttpMethod.POST,
+                    new HttpEntity<>(subscriptions, headers),
+                    String.class
+            ).getBody();
+        });
+        Result result = objectMapper.readValue(response, Result.class);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getMessage());
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> deltas = (List<Map<String, Object>>) result.getData();
+        if (deltas == null) {
+            return;
+        }
+        for (Map<String, Object> delta : deltas) {
+            applyDelta(delta, source.get());
+        }
+    }
+
+    /**
+     * 全量校准所有已订阅服务，单个服务失败时保留其旧缓存
+     */
+    private void refreshAll() {
+        lastFullRefreshTime = System.currentTimeMillis();
+        for (String serviceName : serviceCache.keySet()) {
+            try {
+                serviceCache.put(serviceName, fetchFull(serviceName));
+            } catch (Exception e) {
+                log.warn("Failed to refresh service {}, keep using cached instances: {}", serviceName, e.getMessage());
+            }
+        }
+    }
+
+    private ServiceView fetchFull(String serviceName) throws Exception {
+        AtomicReference<String> source = new AtomicReference<>();
+        String response = serverList.execute(baseUrl -> {
+            source.set(baseUrl);
+            return restTemplate.getForObject(
+                    UriComponentsBuilder.fromHttpUrl(baseUrl)
+                            .path("/instance/list")
+                            .queryParam("serviceName", serviceName)
+                            .toUriString(),
+                    String.class);
+        });
+        Result result = objectMapper.readValue(response, Result.class);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getMessage());
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> data = (Map<String, Object>) result.getData();
+        long revision = toLong(data.get("revision"));
+        Map<String, ServiceInstance> instances = new LinkedHashMap<>();
+        for (ServiceInstance instance : toInstances(data.get("instances"))) {
+            instances.put(instance.getInstanceId(), instance);
+        }
+        return new ServiceView(source.get(), revision, instances);
+    }
+
+    /**
+     * 应用一个服务的增量：全量结果直接替换，否则先移除再新增/更新
+     * 非全量的增量只能叠加在同一节点拉取的视图上，否则丢弃，下一轮订阅会向该节点要全量
+     */
+    private void applyDelta(Map<String, Object> delta, String source) {
+        String serviceName = (String) delta.get("serviceName");
+        ServiceView current = serviceCache.get(serviceName);
+        if (current == null) {
+            return;
+        }
+        boolean full = Boolean.TRUE.equals(delta.get("full"));
+        if (!full && !source.equals(current.source)) {
+            return;
+        }
+
+        Map<String, ServiceInstance> instances;
+        if (full) {
+            instances = new LinkedHashMap<>();
+            for (ServiceInstance instance : toInstances(delta.get("instances"))) {
+                instances.put(instance.getInstanceId(), instance);
+            }
+        } else {
+            instances = new LinkedHashMap<>(current.instanceMap);
+            @SuppressWarnings("unchecked")
+            List<String> removed = (List<String>) delta.get("removed");
+            if (removed != null) {
+                removed.forEach(instances::remove);
+            }
+            for (ServiceInstance instance : toInstances(delta.get("added"))) {
+                instances.put(instance.getInstanceId(), instance);
+            }
+            for (ServiceInstance instance : toInstances(delta.get("changed"))) {
+                instances.put(instance.getInstanceId(), instance);
+            }
+        }
+        ServiceView view = new ServiceView(source, toLong(delta.get("revision")), instances);
+        serviceCache.put(serviceName, view);
+        log.info("Service {} updated, available instances: {}", serviceName, view.instances.size());
+    }
+
+    private List<ServiceInstance> toInstances(Object value) {
+        List<ServiceInstance> instances = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                instances.add(objectMapper.convertValue(item, ServiceInstance.class));
+            }
+        }
+        return instances;
+    }
+
+    private long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    /**
+     * 服务的本地视图 - 不可变，整体替换
+     * instanceMap保存增量涉及的全部实例，instances只暴露状态为UP的实例
+     * source是拉取该视图的注册中心节点，revision只在该节点上有效
+     */
+    private static class ServiceView {
+        final String source;
+        final long revision;
+        final Map<String, ServiceInstance> instanceMap;
+        final List<ServiceInstance> instances;
+
+        ServiceView(String source, long revision, Map<String, ServiceInstance> instanceMap) {
+            this.source = source;
+            this.revision = revision;
+            this.instanceMap = instanceMap;
+            List<ServiceInstance> upInstances = new ArrayList<>(instanceMap.size());
+            for (ServiceInstance instance : instanceMap.values()) {
+                if (instance.getStatus() == null || "UP".equals(instance.getStatus())) {
+                    upInstances.add(instance);
+                }
+            }
+            this.instances = Collections.unmodifiableList(upInstances);
+        }
+    }
+}
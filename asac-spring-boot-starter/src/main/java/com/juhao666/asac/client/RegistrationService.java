@@ -1,11 +1,13 @@
 package com.juhao666.asac.client;
 
 import com.juhao666.asac.config.AsAcProperties;
+import com.juhao666.asac.http.RegistryServerList;
 import com.juhao666.asac.model.Result;
 import com.juhao666.asac.model.ServiceInstance;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
 import org.springframework.web.client.RestTemplate;
 
 import jakarta.annotation.PreDestroy;
@@ -17,59 +19,83 @@ import java.util.concurrent.TimeUnit;
 public class RegistrationService {
     private final AsAcProperties properties;
     private final RestTemplate restTemplate;
+    private final RegistryServerList serverList;
     private final ScheduledExecutorService heartbeatExecutor;
     private ScheduledFuture<?> heartbeatFuture;
 
     public RegistrationService(AsAcProperties properties,
                                RestTemplate restTemplate,
+                               RegistryServerList serverList,
                                ScheduledExecutorService executorService) {
         this.properties = properties;
         this.restTemplate = restTemplate;
+        this.serverList = serverList;
         this.heartbeatExecutor = executorService;
     }
 
     @EventListener(ApplicationReadyEvent.class)
     public void registerToRegistry() {
         log.info("Registering to service registry...");
+        register();
+        // 注册失败也启动心跳：轻量心跳发现实例未注册时会自动重新注册
+        startHeartbeatTask();
+    }
+
+    private boolean register() {
         try {
-            Result result = restTemplate.postForObject(
-                    properties.getRegistryUrl() + "/instance/register",
+            Result result = serverList.execute(baseUrl -> restTemplate.postForObject(
+                    baseUrl + "/instance/register",
                     createServiceInstance(),
                     Result.class
-            );
+            ));
 
             if (result != null && result.isSuccess()) {
                 log.info("Successfully registered to service registry");
-                startHeartbeatTask();
-            } else {
-                log.error("Registration failed: {}",
-                        result != null ? result.getMessage() : "Unknown error");
+                return true;
             }
+            log.error("Registration failed: {}",
+                    result != null ? result.getMessage() : "Unknown error");
         } catch (Exception e) {
             log.error("Failed to register to service registry", e);
         }
+        return false;
     }
 
     private void startHeartbeatTask() {
         heartbeatFuture = heartbeatExecutor.scheduleAtFixedRate(() -> {
             try {
-                restTemplate.postForObject(
-                        properties.getRegistryUrl() + "/instance/heartbeat",
-                        createServiceInstance(),
-                        Result.class
-                );
+                // 轻量心跳：只携带实例ID，不发送完整实例信息；当前节点不可用时在本次心跳内切换到其他节点
+                Result result = serverList.execute(baseUrl -> restTemplate.exchange(
+                        baseUrl + "/instance/beat?serviceName={serviceName}&instanceId={instanceId}",
+                        HttpMethod.PUT,
+                        null,
+                        Result.class,
+                        properties.getServiceName(),
+                        getInstanceId()
+                ).getBody());
+
+                if (result == null || !result.isSuccess()) {
+                    // 注册中心不认识该实例（如注册中心重启），重新注册
+                    log.warn("Heartbeat rejected: {}, re-registering",
+                            result != null ? result.getMessage() : "Unknown error");
+                    register();
+                }
             } catch (Exception e) {
                 log.error("Failed to send heartbeat", e);
             }
         }, 0, properties.getHeartbeatInterval(), TimeUnit.MILLISECONDS);
     }
 
+    //product-service--localhost:8002
+    private String getInstanceId() {
+        return properties.getServiceName() + "-" +
+                properties.getIp() + ":" + properties.getPort();
+    }
+
     private ServiceInstance createServiceInstance() {
         ServiceInstance instance = new ServiceInstance();
         instance.setServiceName(properties.getServiceName());
-        //product-service--localhost:8002
-        instance.setInstanceId(properties.getServiceName() + "-" +
-                properties.getIp() + ":" + properties.getPort());
+        instance.setInstanceId(getInstanceId());
         instance.setIp(properties.getIp());
         instance.setPort(properties.getPort());
         instance.setStatus("UP");
@@ -84,4 +110,3 @@ public class RegistrationService {
         heartbeatExecutor.shutdown();
     }
 }
-
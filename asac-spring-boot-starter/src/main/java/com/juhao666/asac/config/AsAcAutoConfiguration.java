@@ -2,16 +2,27 @@ package com.juhao666.asac.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.juhao666.asac.client.ConfigListener;
+import com.juhao666.asac.client.ConfigRefresher;
+import com.juhao666.asac.client.DiscoveryClient;
 import com.juhao666.asac.client.RegistrationService;
+import com.juhao666.asac.http.AsAcHttpClients;
+import com.juhao666.asac.http.LongPollExecutor;
+import com.juhao666.asac.http.RegistryServerList;
+import com.juhao666.asac.loadbalancer.LoadBalanceStrategy;
+import com.juhao666.asac.loadbalancer.LoadBalancer;
+import com.juhao666.asac.parser.ConfigParserRegistry;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
-import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.cloud.context.scope.refresh.RefreshScope;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.*;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Collections;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -28,8 +39,32 @@ public class AsAcAutoConfiguration implements ImportBeanDefinitionRegistrar {
 
     @Bean
     @ConditionalOnMissingBean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public AsAcHttpClients asAcHttpClients(AsAcProperties properties) {
+        return new AsAcHttpClients(properties.getHttp());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public LongPollExecutor longPollExecutor(AsAcProperties properties) {
+        return new LongPollExecutor(properties.getHttp().getLongPollThreadMode());
+    }
+
+    // 未配置registry-urls时退化为只有registry-url一个节点
+    @Bean
+    @ConditionalOnMissingBean
+    public RegistryServerList registryServerList(AsAcProperties properties) {
+        return new RegistryServerList(
+                properties.getRegistryUrls().isEmpty()
+                        ? Collections.singletonList(properties.getRegistryUrl())
+                        : properties.getRegistryUrls(),
+                properties.getRegistryFailureCooldown());
+    }
+
+    // 业务调用使用的RestTemplate，注册中心通信使用AsAcHttpClients中独立的连接池
+    @Bean
+    @ConditionalOnMissingBean
+    public RestTemplate restTemplate(AsAcHttpClients httpClients) {
+        return httpClients.getBusinessRestTemplate();
     }
 
     @Bean
@@ -47,19 +82,68 @@ public class AsAcAutoConfiguration implements ImportBeanDefinitionRegistrar {
     @ConditionalOnMissingBean
     public RegistrationService registrationService(
             AsAcProperties properties,
-            RestTemplate restTemplate,
+            AsAcHttpClients httpClients,
+            RegistryServerList registryServerList,
             ScheduledExecutorService executorService) {
-        return new RegistrationService(properties, restTemplate, executorService);
+        return new RegistrationService(properties, httpClients.getHeartbeatRestTemplate(), registryServerList,
+                executorService);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ConfigParserRegistry configParserRegistry() {
+        return new ConfigParserRegistry();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ConfigRefresher configRefresher(
+            ConfigurableEnvironment environment,
+            ApplicationContext applicationContext,
+            ConfigurableListableBeanFactory beanFactory,
+            RefreshScope refreshScope) {
+        return new ConfigRefresher(environment, applicationContext, beanFactory, refreshScope);
     }
 
     @Bean
     @ConditionalOnMissingBean(value = ConfigListener.class, name = "configListener")
     public ConfigListener configListener(
             AsAcProperties properties,
-            RestTemplate restTemplate,
+            AsAcHttpClients httpClients,
+            RegistryServerList registryServerList,
             ObjectMapper objectMapper,
             ConfigurableEnvironment environment,
-            ContextRefresher contextRefresher) {
-        return new ConfigListener(properties, restTemplate, objectMapper, environment, contextRefresher);
+            ConfigRefresher configRefresher,
+            LongPollExecutor longPollExecutor,
+            ConfigParserRegistry configParserRegistry) {
+        return new ConfigListener(properties, httpClients, registryServerList, objectMapper, environment,
+                configRefresher, longPollExecutor, configParserRegistry);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DiscoveryClient discoveryClient(
+            AsAcProperties properties,
+            AsAcHttpClients httpClients,
+            RegistryServerList registryServerList,
+            ObjectMapper objectMapper,
+            LongPollExecutor longPollExecutor) {
+        return new DiscoveryClient(properties, httpClients.getLongPollRestTemplate(), registryServerList,
+                objectMapper, longPollExecutor);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public LoadBalanceStrategy loadBalanceStrategy(AsAcProperties properties) {
+        return LoadBalancer.createStrategy(properties.getLoadbalancer().getStrategy());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public LoadBalancer loadBalancer(
+            AsAcProperties properties,
+            DiscoveryClient discoveryClient,
+            LoadBalanceStrategy loadBalanceStrategy) {
+        return new LoadBalancer(discoveryClient, loadBalanceStrategy, properties.getLoadbalancer().getDecayTime());
     }
-}
+}
\ No newline at end of file
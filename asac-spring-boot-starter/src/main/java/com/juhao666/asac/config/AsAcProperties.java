@@ -3,13 +3,59 @@ package com.juhao666.asac.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @ConfigurationProperties(prefix = "asac")
 public class AsAcProperties {
     private boolean enabled = true;
     private String registryUrl = "http://localhost:8848/api/v1";
+    private List<String> registryUrls = new ArrayList<>(); // 注册中心集群节点列表，配置后取代registryUrl，节点故障时自动切换
+    private long registryFailureCooldown = 10000; // 节点请求失败后的冷却时间，期间优先使用其他节点，milliseconds
     private String serviceName;
     private String ip = "localhost";
     private int port;
     private long heartbeatInterval = 5000; // milliseconds
+    private List<String> sharedDataIds = new ArrayList<>(); // 共享配置，优先级低于应用自身配置
+    private String configCacheDir = System.getProperty("user.home") + "/.asac/config-cache"; // 本地配置缓存目录，重启时用于条件请求
+    private List<String> subscribedServices = new ArrayList<>(); // 启动时预先订阅的服务
+    private long discoveryRefreshInterval = 30000; // 服务发现全量校准间隔，milliseconds
+    private LoadBalancerProperties loadbalancer = new LoadBalancerProperties();
+    private HttpProperties http = new HttpProperties();
+
+    @Data
+    public static class LoadBalancerProperties {
+        private String strategy = "round-robin"; // round-robin | weighted | least-outstanding | p2c | latency-aware
+        private long decayTime = 10000; // 响应时间/错误率EWMA的衰减时间常数，milliseconds
+    }
+
+    @Data
+    public static class HttpProperties {
+        private long connectTimeout = 3000; // milliseconds
+        private long connectionRequestTimeout = 3000; // 从连接池获取连接的等待时间，milliseconds
+        private long idleTimeout = 30000; // 空闲连接回收时间，milliseconds
+        private long timeToLive = 300000; // 连接最长存活时间，milliseconds
+        private long validateAfterInactivity = 2000; // 空闲超过该时间的连接复用前先检查，milliseconds
+        private String longPollThreadMode = "platform"; // 长轮询线程：platform | virtual（需Java 21+，否则回退为平台线程）
+        private PoolProperties heartbeat = new PoolProperties(4, 2, 5000); // 注册和心跳
+        private PoolProperties longPoll = new PoolProperties(8, 4, 40000); // 配置监听和服务订阅，读超时需大于注册中心长轮询超时
+        private PoolProperties business = new PoolProperties(200, 50, 10000); // 业务服务间调用
+    }
+
+    @Data
+    public static class PoolProperties {
+        private int maxConnections;
+        private int maxConnectionsPerRoute;
+        private long readTimeout; // milliseconds
+
+        public PoolProperties() {
+        }
+
+        public PoolProperties(int maxConnections, int maxConnectionsPerRoute, long readTimeout) {
+            this.maxConnections = maxConnections;
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            this.readTimeout = readTimeout;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.juhao666.asac.http;
+
+import com.juhao666.asac.config.AsAcProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 连接池化的HTTP客户端
+ * 基于httpclient5连接池和长连接，按用途拆分为三个独立的连接池，互不抢占连接：
+ * - heartbeat：注册和心跳，连接少、超时短，心跳不会被长轮询或业务调用占满连接池而延误
+ * - longPoll：配置监听和服务订阅，读超时大于注册中心的长轮询挂起时间
+ * - business：业务服务间调用
+ */
+@Slf4j
+public class AsAcHttpClients {
+
+    private final List<CloseableHttpClient> clients = new ArrayList<>();
+
+    private final RestTemplate heartbeatRestTemplate;
+    private final RestTemplate longPollRestTemplate;
+    private final RestTemplate businessRestTemplate;
+
+    public AsAcHttpClients(AsAcProperties.HttpProperties properties) {
+        this.heartbeatRestTemplate = createRestTemplate(properties, properties.getHeartbeat());
+        this.longPollRestTemplate = createRestTemplate(properties, properties.getLongPoll());
+        this.businessRestTemplate = createRestTemplate(properties, properties.getBusiness());
+    }
+
+    public RestTemplate getHeartbeatRestTemplate() {
+        return heartbeatRestTemplate;
+    }
+
+    public RestTemplate getLongPollRestTemplate() {
+        return longPollRestTemplate;
+    }
+
+    public RestTemplate getBusinessRestTemplate() {
+        return businessRestTemplate;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (CloseableHttpClient client : clients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.warn("Failed to close http client: {}", e.getMessage());
+            }
+        }
+    }
+
+    private RestTemplate createRestTemplate(AsAcProperties.HttpProperties properties, AsAcProperties.PoolProperties pool) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(pool.getMaxConnections())
+                .setMaxConnPerRoute(pool.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(pool.getReadTimeout()))
+                        .setTimeToLive(TimeValue.ofMilliseconds(properties.getTimeToLive()))
+                        // 空闲超过该时间的连接复用前先检查，避免拿到已被服务端关闭的连接
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(properties.getValidateAfterInactivity()))
+                        .build())
+                .build();
+
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(properties.getConnectionRequestTimeout()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(pool.getReadTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(properties.getIdleTimeout()))
+                .build();
+        clients.add(client);
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(client));
+    }
+}
@@ -0,0 +1,75 @@
+package com.juhao666.asac.http;
+
+import lombok.extern.slf4j.Slf4j;
+
+import jakarta.annotation.PreDestroy;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 长轮询执行器
+ * 配置监听、服务订阅等长轮询循环共用的执行器，不再各自创建平台线程。
+ * thread-mode为virtual且运行在Java 21及以上时使用虚拟线程，阻塞在长轮询上的循环不占用平台线程；
+ * 否则（或虚拟线程不可用时）使用守护平台线程
+ */
+@Slf4j
+public class LongPollExecutor {
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+
+    public LongPollExecutor(String threadMode) {
+        ExecutorService virtualExecutor = "virtual".equalsIgnoreCase(threadMode) ? createVirtualExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        this.executor = virtual ? virtualExecutor : createPlatformExecutor();
+        log.info("Long-poll executor started, virtual threads: {}", virtual);
+    }
+
+    /**
+     * 提交一个长轮询循环，返回的Future可用于取消（中断）循环
+     */
+    public Future<?> submit(Runnable loop) {
+        return executor.submit(loop);
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private ExecutorService createPlatformExecutor() {
+        AtomicInteger threadIndex = new AtomicInteger(1);
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "AsAc-LongPoll-Thread-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器（项目按Java 17编译），等价于：
+     * Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("AsAc-LongPoll-Virtual-", 1).factory())
+     */
+    private ExecutorService createVirtualExecutor() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "AsAc-LongPoll-Virtual-", 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Virtual threads are not available on Java {}, falling back to platform threads",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
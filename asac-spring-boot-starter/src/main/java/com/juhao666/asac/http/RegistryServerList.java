@@ -0,0 +1,128 @@
+package com.juhao666.asac.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * 注册中心节点列表
+ * 注册、心跳、配置拉取/监听和服务订阅都通过它选择注册中心节点：
+ * - 粘性：一直使用当前节点，只有它失败时才切换，切换后停留在新节点，不会在节点间来回跳动
+ * - 快速故障转移：连接失败、超时或5xx时立即在同一次调用内换下一个节点重试，
+ *   节点宕机后心跳和长轮询在一个请求超时内就切换到存活节点
+ * - 健康跟踪：失败的节点在冷却时间内排到最后，冷却结束后重新参与选择；所有节点都失败时才抛出异常
+ * - 各客户端从随机节点开始，把连接分散到集群的各个节点
+ */
+@Slf4j
+public class RegistryServerList {
+
+    private final List<Server> servers;
+    private final long failureCooldown;
+
+    // 当前使用的节点下标
+    private volatile int current;
+
+    public RegistryServerList(List<String> urls, long failureCooldown) {
+        if (urls == null || urls.isEmpty()) {
+            throw new IllegalArgumentException("asac.registry-urls is empty");
+        }
+        List<Server> list = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            // 去掉末尾的"/"，调用方统一按 url + path 拼接
+            list.add(new Server(url.endsWith("/") ? url.substring(0, url.length() - 1) : url));
+        }
+        this.servers = Collections.unmodifiableList(list);
+        this.failureCooldown = failureCooldown;
+        this.current = ThreadLocalRandom.current().nextInt(servers.size());
+    }
+
+    /**
+     * 在注册中心节点上执行请求，失败时按顺序换节点重试
+     * 4xx等业务错误不切换节点，直接抛出
+     *
+     * @param request 以节点地址（如 http://host:8848/api/v1）为参数的请求
+     */
+    public <T> T execute(Function<String, T> request) {
+        RuntimeException lastError = null;
+        for (int index : candidates()) {
+            Server server = servers.get(index);
+            try {
+                T result = request.apply(server.url);
+                markSuccess(index);
+                return result;
+            } catch (ResourceAccessException | HttpServerErrorException e) {
+                markFailed(index, e);
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * 当前使用的节点地址
+     */
+    public String getCurrentUrl() {
+        return servers.get(current).url;
+    }
+
+    public List<String> getUrls() {
+        List<String> urls = new ArrayList<>(servers.size());
+        for (Server server : servers) {
+            urls.add(server.url);
+        }
+        return urls;
+    }
+
+    /**
+     * 尝试顺序：从当前节点开始轮转，健康节点在前，冷却中的节点放在最后兜底
+     */
+    private List<Integer> candidates() {
+        long now = System.currentTimeMillis();
+        int start = current;
+        List<Integer> healthy = new ArrayList<>(servers.size());
+        List<Integer> cooling = new ArrayList<>();
+        for (int i = 0; i < servers.size(); i++) {
+            int index = (start + i) % servers.size();
+            if (servers.get(index).unhealthyUntil <= now) {
+                healthy.add(index);
+            } else {
+                cooling.add(index);
+            }
+        }
+        healthy.addAll(cooling);
+        return healthy;
+    }
+
+    private void markSuccess(int index) {
+        Server server = servers.get(index);
+        server.unhealthyUntil = 0;
+        if (current != index) {
+            log.warn("Registry failover: {} -> {}", servers.get(current).url, server.url);
+            current = index;
+        }
+    }
+
+    private void markFailed(int index, RuntimeException e) {
+        Server server = servers.get(index);
+        if (server.unhealthyUntil <= System.currentTimeMillis()) {
+            log.warn("Registry {} unavailable, cooling down for {}ms: {}", server.url, failureCooldown, e.getMessage());
+        }
+        server.unhealthyUntil = System.currentTimeMillis() + failureCooldown;
+    }
+
+    private static class Server {
+        final String url;
+        // 冷却结束时间，0表示健康
+        volatile long unhealthyUntil;
+
+        Server(String url) {
+            this.url = url;
+        }
+    }
+}
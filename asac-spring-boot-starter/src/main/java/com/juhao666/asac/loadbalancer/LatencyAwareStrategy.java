@@ -0,0 +1,51 @@
+package com.juhao666.asac.loadbalancer;
+
+import com.juhao666.asac.model.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 延迟感知策略
+ * 在P2C的基础上按负载成本比较两个候选实例：
+ * 成本 = max(EWMA响应时间, 1ms) × (进行中请求数 + 1) × (1 + 错误率 × 错误惩罚)
+ * 慢实例和频繁出错的实例会被自动绕开，不需要等到心跳超时被摘除。
+ * 没有样本的新实例按另一个候选的响应时间估算，只比较进行中请求数和错误率，
+ * 不会因为成本为0而在完成测量前被压上所有流量
+ */
+public class LatencyAwareStrategy implements LoadBalanceStrategy {
+
+    // 错误率为1时成本放大的倍数
+    private static final double ERROR_PENALTY = 10.0;
+
+    // 响应时间下限（毫秒）：避免响应时间为0时进行中请求数不再影响成本
+    private static final double MIN_LATENCY = 1.0;
+
+    @Override
+    public ServiceInstance choose(String serviceName, List<ServiceInstance> instances, LoadBalancerStats stats) {
+        int size = instances.size();
+        if (size == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        double latencyA = stats.getLatency(a.getInstanceId());
+        double latencyB = stats.getLatency(b.getInstanceId());
+        double costA = cost(a, latencyA > 0 ? latencyA : latencyB, stats);
+        double costB = cost(b, latencyB > 0 ? latencyB : latencyA, stats);
+        return costA <= costB ? a : b;
+    }
+
+    private double cost(ServiceInstance instance, double latency, LoadBalancerStats stats) {
+        String instanceId = instance.getInstanceId();
+        return Math.max(latency, MIN_LATENCY)
+                * (stats.getOutstanding(instanceId) + 1)
+                * (1 + stats.getErrorRate(instanceId) * ERROR_PENALTY);
+    }
+}
@@ -0,0 +1,30 @@
+package com.juhao666.asac.loadbalancer;
+
+import com.juhao666.asac.model.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最少进行中请求策略
+ * 选择进行中请求数最少的实例；从随机位置开始扫描，请求数相同时不会总是落到第一个实例
+ */
+public class LeastOutstandingStrategy implements LoadBalanceStrategy {
+
+    @Override
+    public ServiceInstance choose(String serviceName, List<ServiceInstance> instances, LoadBalancerStats stats) {
+        int size = instances.size();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        ServiceInstance best = null;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            ServiceInstance instance = instances.get((start + i) % size);
+            int outstanding = stats.getOutstanding(instance.getInstanceId());
+            if (outstanding < bestOutstanding) {
+                best = instance;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,21 @@
+package com.juhao666.asac.loadbalancer;
+
+import com.juhao666.asac.model.ServiceInstance;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 负载均衡策略
+ * 从服务发现缓存的实例列表中选出一个实例，instances保证非空
+ */
+public interface LoadBalanceStrategy {
+
+    ServiceInstance choose(String serviceName, List<ServiceInstance> instances, LoadBalancerStats stats);
+
+    /**
+     * 清理不再订阅的服务的状态，按服务保存状态的策略需要实现
+     */
+    default void retainServices(Set<String> serviceNames) {
+    }
+}
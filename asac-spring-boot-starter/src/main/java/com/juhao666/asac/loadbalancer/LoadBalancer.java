@@ -0,0 +1,99 @@
+package com.juhao666.asac.loadbalancer;
+
+import com.juhao666.asac.client.DiscoveryClient;
+import com.juhao666.asac.model.ServiceInstance;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 客户端负载均衡器
+ * 基于DiscoveryClient的本地实例缓存选择实例，策略由asac.loadbalancer.strategy指定
+ * 选择实例时顺带定期清理已不在服务发现缓存中的实例统计和服务状态
+ */
+public class LoadBalancer {
+
+    // 清理已下线实例统计的间隔，milliseconds
+    private static final long PRUNE_INTERVAL = 60000;
+
+    private final DiscoveryClient discoveryClient;
+    private final LoadBalanceStrategy strategy;
+    private final LoadBalancerStats stats;
+    private final AtomicLong lastPruneTime = new AtomicLong(System.currentTimeMillis());
+
+    public LoadBalancer(DiscoveryClient discoveryClient, LoadBalanceStrategy strategy, long decayTime) {
+        this.discoveryClient = discoveryClient;
+        this.strategy = strategy;
+        this.stats = new LoadBalancerStats(decayTime);
+    }
+
+    /**
+     * 为服务选择一个实例，没有可用实例时返回null
+     */
+    public ServiceInstance choose(String serviceName) {
+        pruneIfDue();
+        List<ServiceInstance> instances = discoveryClient.getInstances(serviceName);
+        if (instances.isEmpty()) {
+            return null;
+        }
+        return strategy.choose(serviceName, instances, stats);
+    }
+
+    /**
+     * 在选定的实例上执行调用，统计进行中的请求数、响应时间和错误率
+     * 调用抛出异常即视为出错，异常原样抛出
+     */
+    public <T> T execute(ServiceInstance instance, Function<ServiceInstance, T> call) {
+        String instanceId = instance.getInstanceId();
+        stats.begin(instanceId);
+        long startTime = System.nanoTime();
+        boolean error = true;
+        try {
+            T result = call.apply(instance);
+            error = false;
+            return result;
+        } finally {
+            stats.end(instanceId, (System.nanoTime() - startTime) / 1_000_000, error);
+        }
+    }
+
+    /**
+     * 到达清理间隔时由一个调用线程清理，其余线程直接跳过
+     */
+    private void pruneIfDue() {
+        long now = System.currentTimeMillis();
+        long last = lastPruneTime.get();
+        if (now - last < PRUNE_INTERVAL || !lastPruneTime.compareAndSet(last, now)) {
+            return;
+        }
+        stats.retainInstances(discoveryClient.getCachedInstanceIds());
+        strategy.retainServices(new HashSet<>(discoveryClient.getSubscribedServices()));
+    }
+
+    public LoadBalancerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 按名称创建策略：round-robin | weighted | least-outstanding | p2c | latency-aware
+     */
+    public static LoadBalanceStrategy createStrategy(String name) {
+        switch (name == null ? "" : name.trim().toLowerCase()) {
+            case "weighted":
+                return new WeightedStrategy();
+            case "least-outstanding":
+                return new LeastOutstandingStrategy();
+            case "p2c":
+                return new PowerOfTwoChoicesStrategy();
+            case "latency-aware":
+                return new LatencyAwareStrategy();
+            case "round-robin":
+            case "":
+                return new RoundRobinStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown load balancer strategy: " + name);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.juhao666.asac.loadbalancer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 实例调用统计
+ * 记录每个实例正在进行中的请求数，以及按时间衰减的EWMA响应时间和错误率，
+ * 供最少连接、P2C、延迟感知等策略使用。
+ * 已下线实例的统计由LoadBalancer定期清理，滚动发布时不会无限增长
+ */
+public class LoadBalancerStats {
+
+    // EWMA衰减时间常数：越小越偏向最近的样本
+    private final long decayTime;
+
+    // instanceId -> 实例统计
+    private final Map<String, InstanceStats> instanceStats = new ConcurrentHashMap<>();
+
+    public LoadBalancerStats(long decayTime) {
+        this.decayTime = Math.max(1, decayTime);
+    }
+
+    public void begin(String instanceId) {
+        get(instanceId).outstanding.incrementAndGet();
+    }
+
+    /**
+     * 请求结束，记录响应时间和是否出错
+     */
+    public void end(String instanceId, long latencyMillis, boolean error) {
+        InstanceStats stats = instanceStats.get(instanceId);
+        if (stats == null) {
+            // 请求进行期间实例已下线，统计已被清理
+            return;
+        }
+        stats.outstanding.decrementAndGet();
+        stats.record(System.currentTimeMillis(), latencyMillis, error, decayTime);
+    }
+
+    public int getOutstanding(String instanceId) {
+        InstanceStats stats = instanceStats.get(instanceId);
+        return stats != null ? stats.outstanding.get() : 0;
+    }
+
+    /**
+     * EWMA响应时间（毫秒），没有样本时返回0
+     * 读取时按距上次样本的时间衰减：慢实例被绕开后不再有新样本，
+     * 衰减让它在一段时间后重新获得少量流量，恢复后即可被重新选中
+     */
+    public double getLatency(String instanceId) {
+        InstanceStats stats = instanceStats.get(instanceId);
+        return stats != null ? stats.latency * stats.decayFactor(System.currentTimeMillis(), decayTime) : 0;
+    }
+
+    /**
+     * EWMA错误率（0~1），同样按时间衰减
+     */
+    public double getErrorRate(String instanceId) {
+        InstanceStats stats = instanceStats.get(instanceId);
+        return stats != null ? stats.errorRate * stats.decayFactor(System.currentTimeMillis(), decayTime) : 0;
+    }
+
+    /**
+     * 只保留仍在服务发现缓存中的实例，清理已下线实例的统计
+     */
+    public void retainInstances(Set<String> instanceIds) {
+        instanceStats.keySet().removeIf(instanceId -> !instanceIds.contains(instanceId));
+    }
+
+    public int size() {
+        return instanceStats.size();
+    }
+
+    private InstanceStats get(String instanceId) {
+        return instanceStats.computeIfAbsent(instanceId, k -> new InstanceStats());
+    }
+
+    private static class InstanceStats {
+        final AtomicInteger outstanding = new AtomicInteger();
+        volatile double latency;
+        volatile double errorRate;
+        volatile long lastUpdateTime;
+
+        /**
+         * 时间加权EWMA：两次样本间隔越久，旧值权重越低；第一个样本直接作为初始值。
+         * 响应时间取峰值（peak EWMA）：比当前值慢的样本立即生效，变快则逐步衰减，
+         * 一次慢响应就足以让实例被绕开，而不用等到平均值慢慢升高
+         */
+        synchronized void record(long now, long latencyMillis, boolean error, long decayTime) {
+            double sample = error ? 1.0 : 0.0;
+            if (lastUpdateTime == 0) {
+                latency = latencyMillis;
+                errorRate = sample;
+            } else {
+                double weight = decayFactor(now, decayTime);
+                latency = latencyMillis > latency ? latencyMillis : latency * weight + latencyMillis * (1 - weight);
+                errorRate = errorRate * weight + sample * (1 - weight);
+            }
+            lastUpdateTime = now;
+        }
+
+        double decayFactor(long now, long decayTime) {
+            long elapsed = Math.max(0, now - lastUpdateTime);
+            return Math.exp(-(double) elapsed / decayTime);
+        }
+    }
+}
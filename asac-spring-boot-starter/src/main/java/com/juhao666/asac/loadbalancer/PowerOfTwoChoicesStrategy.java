@@ -0,0 +1,31 @@
+package com.juhao666.asac.loadbalancer;
+
+import com.juhao666.asac.model.ServiceInstance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * P2C策略（power of two choices）
+ * 随机取两个不同的实例，选择进行中请求数较少的一个。
+ * 只比较两个实例，开销与实例数无关，又能避免最少连接策略下多个客户端同时涌向同一个实例
+ */
+public class PowerOfTwoChoicesStrategy implements LoadBalanceStrategy {
+
+    @Override
+    public ServiceInstance choose(String serviceName, List<ServiceInstance> instances, LoadBalancerStats stats) {
+        int size = instances.size();
+        if (size == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return stats.getOutstanding(a.getInstanceId()) <= stats.getOutstanding(b.getInstanceId()) ? a : b;
+    }
+}
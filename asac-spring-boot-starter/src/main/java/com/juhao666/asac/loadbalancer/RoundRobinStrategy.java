@@ -0,0 +1,28 @@
+package com.juhao666.asac.loadbalancer;
+
+import com.juhao666.asac.model.ServiceInstance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮询策略 - 每个服务独立计数，依次选择实例
+ */
+public class RoundRobinStrategy implements LoadBalanceStrategy {
+
+    private final Map<String, AtomicInteger> positions = new ConcurrentHashMap<>();
+
+    @Override
+    public ServiceInstance choose(String serviceName, List<ServiceInstance> instances, LoadBalancerStats stats) {
+        AtomicInteger position = positions.computeIfAbsent(serviceName, k -> new AtomicInteger());
+        return instances.get(Math.floorMod(position.getAndIncrement(), instances.size()));
+    }
+
+    @Override
+    public void retainServices(Set<String> serviceNames) {
+        positions.keySet().removeIf(serviceName -> !serviceNames.contains(serviceName));
+    }
+}
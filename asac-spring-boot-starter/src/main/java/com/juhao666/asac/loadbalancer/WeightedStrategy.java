@@ -0,0 +1,53 @@
+package com.juhao666.asac.loadbalancer;
+
+import com.juhao666.asac.model.ServiceInstance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 加权随机策略
+ * 权重取自实例元数据weight，缺省为1；权重为0的实例不参与选择，全部为0时退化为随机
+ */
+public class WeightedStrategy implements LoadBalanceStrategy {
+
+    public static final String WEIGHT_KEY = "weight";
+    private static final int DEFAULT_WEIGHT = 1;
+
+    @Override
+    public ServiceInstance choose(String serviceName, List<ServiceInstance> instances, LoadBalancerStats stats) {
+        int[] weights = new int[instances.size()];
+        long totalWeight = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = getWeight(instances.get(i));
+            totalWeight += weights[i];
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (totalWeight <= 0) {
+            return instances.get(random.nextInt(instances.size()));
+        }
+        long offset = random.nextLong(totalWeight);
+        for (int i = 0; i < weights.length; i++) {
+            offset -= weights[i];
+            if (offset < 0) {
+                return instances.get(i);
+            }
+        }
+        return instances.get(instances.size() - 1);
+    }
+
+    static int getWeight(ServiceInstance instance) {
+        Map<String, String> metadata = instance.getMetadata();
+        String weight = metadata != null ? metadata.get(WEIGHT_KEY) : null;
+        if (weight == null) {
+            return DEFAULT_WEIGHT;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(weight.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_WEIGHT;
+        }
+    }
+}
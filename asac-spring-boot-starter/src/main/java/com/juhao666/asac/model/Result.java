@@ -3,8 +3,10 @@ package com.juhao666.asac.model;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class Result {
     private boolean success;
@@ -1,13 +1,18 @@
 package com.juhao666.asac.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class ServiceInstance {
     private String serviceName;
     private String instanceId;
     private String ip;
     private int port;
     private String status;
+    private Map<String, String> metadata;
 }
@@ -0,0 +1,20 @@
+package com.juhao666.asac.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 配置内容解析器
+ * 以流的方式读取配置内容，输出扁平化的配置项：嵌套结构用"."连接，数组元素用"[下标]"，与Spring的命名一致
+ */
+public interface ConfigParser {
+
+    /**
+     * 支持的配置类型（小写），同时用于匹配dataId的扩展名
+     */
+    Set<String> getTypes();
+
+    Map<String, String> parse(Reader reader) throws IOException;
+}
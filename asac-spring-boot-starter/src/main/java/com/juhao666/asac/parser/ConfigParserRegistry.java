@@ -0,0 +1,55 @@
+package com.juhao666.asac.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 配置解析器注册表
+ * 按配置类型（ConfigItem.type）选择解析器，类型缺失或未注册时按dataId的扩展名，仍无法确定时按properties解析。
+ * 内置properties、yaml、json、xml，可通过register添加或替换
+ */
+public class ConfigParserRegistry {
+
+    private final Map<String, ConfigParser> parsers = new ConcurrentHashMap<>();
+    private final ConfigParser defaultParser = new PropertiesConfigParser();
+
+    public ConfigParserRegistry() {
+        register(defaultParser);
+        register(new YamlConfigParser());
+        register(new JsonConfigParser());
+        register(new XmlConfigParser());
+    }
+
+    public void register(ConfigParser parser) {
+        for (String type : parser.getTypes()) {
+            parsers.put(type.toLowerCase(), parser);
+        }
+    }
+
+    public ConfigParser getParser(String type, String dataId) {
+        ConfigParser parser = type != null ? parsers.get(type.toLowerCase()) : null;
+        if (parser == null && dataId != null) {
+            int dot = dataId.lastIndexOf('.');
+            if (dot >= 0) {
+                parser = parsers.get(dataId.substring(dot + 1).toLowerCase());
+            }
+        }
+        return parser != null ? parser : defaultParser;
+    }
+
+    /**
+     * 解析配置内容为扁平的配置项，内容为空时返回空Map
+     */
+    public Map<String, String> parse(String content, String type, String dataId) throws IOException {
+        if (content == null || content.isBlank()) {
+            return new HashMap<>();
+        }
+        try (Reader reader = new StringReader(content)) {
+            return getParser(type, dataId).parse(reader);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.juhao666.asac.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * json解析器 - 基于Jackson流式API，不构建对象树
+ */
+public class JsonConfigParser implements ConfigParser {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Override
+    public Set<String> getTypes() {
+        return Set.of("json");
+    }
+
+    @Override
+    public Map<String, String> parse(Reader reader) throws IOException {
+        PropertyFlattener flattener = new PropertyFlattener();
+        try (JsonParser parser = jsonFactory.createParser(reader)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                switch (token) {
+                    case START_OBJECT:
+                        flattener.startObject();
+                        break;
+                    case START_ARRAY:
+                        flattener.startArray();
+                        break;
+                    case END_OBJECT:
+                    case END_ARRAY:
+                        flattener.end();
+                        break;
+                    case FIELD_NAME:
+                        flattener.key(parser.getCurrentName());
+                        break;
+                    case VALUE_NULL:
+                        flattener.value(null);
+                        break;
+                    default:
+                        flattener.value(parser.getText());
+                }
+            }
+        }
+        return flattener.getProperties();
+    }
+}
@@ -0,0 +1,31 @@
+package com.juhao666.asac.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * properties解析器
+ * Properties.load按字符流解析，支持注释、续行、转义以及 = : 空白三种分隔符
+ */
+public class PropertiesConfigParser implements ConfigParser {
+
+    @Override
+    public Set<String> getTypes() {
+        return Set.of("properties", "text");
+    }
+
+    @Override
+    public Map<String, String> parse(Reader reader) throws IOException {
+        Properties properties = new Properties();
+        properties.load(reader);
+        Map<String, String> result = new HashMap<>(properties.size() * 4 / 3 + 1);
+        for (String key : properties.stringPropertyNames()) {
+            result.put(key, properties.getProperty(key).trim());
+        }
+        return result;
+    }
+}
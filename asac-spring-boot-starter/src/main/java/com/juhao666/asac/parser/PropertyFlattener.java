@@ -0,0 +1,119 @@
+package com.juhao666.asac.parser;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 扁平化工具 - 把流式解析器产生的对象/数组/键/值事件转换为扁平的配置项
+ * 对象属性路径为 parent.key，数组元素路径为 parent[index]
+ */
+class PropertyFlattener {
+
+    private final Map<String, String> properties = new LinkedHashMap<>();
+    private final Deque<Frame> frames = new ArrayDeque<>();
+
+    /**
+     * 开始一个对象，返回它的路径
+     */
+    String startObject() {
+        return push(true);
+    }
+
+    /**
+     * 开始一个数组，返回它的路径
+     */
+    String startArray() {
+        return push(false);
+    }
+
+    void end() {
+        frames.pop();
+    }
+
+    /**
+     * 当前是否在等待对象的下一个键
+     */
+    boolean expectsKey() {
+        Frame frame = frames.peek();
+        return frame != null && frame.object && frame.key == null;
+    }
+
+    void key(String key) {
+        frames.peek().key = key;
+    }
+
+    String pendingKey() {
+        Frame frame = frames.peek();
+        return frame != null ? frame.key : null;
+    }
+
+    /**
+     * 丢弃等待中的键（该键的值已由调用方自行处理）
+     */
+    void skipKey() {
+        frames.peek().key = null;
+    }
+
+    /**
+     * 当前所在对象/数组的路径
+     */
+    String currentPath() {
+        Frame frame = frames.peek();
+        return frame != null ? frame.path : "";
+    }
+
+    /**
+     * 当前位置的值，null按空串处理；文档顶层的单个值没有键，忽略
+     */
+    void value(String value) {
+        if (frames.isEmpty()) {
+            return;
+        }
+        properties.put(nextPath(), value != null ? value : "");
+    }
+
+    /**
+     * 下一个值的完整路径，并推进当前位置
+     */
+    String nextPath() {
+        Frame frame = frames.peek();
+        if (frame.object) {
+            String path = frame.path.isEmpty() ? frame.key : frame.path + "." + frame.key;
+            frame.key = null;
+            return path;
+        }
+        return frame.path + "[" + frame.index++ + "]";
+    }
+
+    void put(String path, String value, boolean override) {
+        if (override) {
+            properties.put(path, value);
+        } else {
+            properties.putIfAbsent(path, value);
+        }
+    }
+
+    Map<String, String> getProperties() {
+        return properties;
+    }
+
+    private String push(boolean object) {
+        String path = frames.isEmpty() ? "" : nextPath();
+        frames.push(new Frame(path, object));
+        return path;
+    }
+
+    private static class Frame {
+        final String path;
+        final boolean object;
+        String key;     // 对象中等待值的键
+        int index;      // 数组中下一个元素的下标
+
+        Frame(String path, boolean object) {
+            this.path = path;
+            this.object = object;
+        }
+    }
+}
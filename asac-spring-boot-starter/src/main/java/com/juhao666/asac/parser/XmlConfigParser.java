@@ -0,0 +1,156 @@
+package com.juhao666.asac.parser;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * xml解析器 - 基于StAX流式读取，不构建DOM
+ * 根元素为properties时按Java properties的XML格式读取entry元素；
+ * 否则按元素路径扁平化（不含根元素），属性作为 元素路径.属性名，叶子元素的文本作为值；
+ * 同名的兄弟元素作为数组，按出现顺序加下标（servers.server[0]、servers.server[1]），只出现一次的元素不加下标
+ */
+public class XmlConfigParser implements ConfigParser {
+
+    private static final String PROPERTIES_ROOT = "properties";
+    private static final String ENTRY = "entry";
+    private static final String ENTRY_KEY = "key";
+
+    private final XMLInputFactory inputFactory;
+
+    public XmlConfigParser() {
+        inputFactory = XMLInputFactory.newInstance();
+        // 配置内容来自注册中心，禁用DTD和外部实体，防止XXE
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    @Override
+    public Set<String> getTypes() {
+        return Set.of("xml");
+    }
+
+    @Override
+    public Map<String, String> parse(Reader reader) throws IOException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        Deque<Element> elements = new ArrayDeque<>();
+        XMLStreamReader xml = null;
+        try {
+            xml = inputFactory.createXMLStreamReader(reader);
+            boolean propertiesFormat = false;
+            while (xml.hasNext()) {
+                switch (xml.next()) {
+                    case XMLStreamConstants.START_ELEMENT: {
+                        String name = xml.getLocalName();
+                        Element parent = elements.peek();
+                        if (parent == null) {
+                            propertiesFormat = PROPERTIES_ROOT.equals(name);
+                            elements.push(new Element("", null));
+                            break;
+                        }
+                        parent.hasChildren = true;
+                        if (propertiesFormat) {
+                            // 只读取entry，忽略comment等其他元素
+                            String key = ENTRY.equals(name) ? xml.getAttributeValue(null, ENTRY_KEY) : null;
+                            elements.push(new Element(key, key));
+                            break;
+                        }
+                        String path = childPath(properties, parent, name);
+                        Element element = new Element(path, path);
+                        for (int i = 0; i < xml.getAttributeCount(); i++) {
+                            properties.put(path + "." + xml.getAttributeLocalName(i), xml.getAttributeValue(i));
+                            element.hasAttributes = true;
+                        }
+                        elements.push(element);
+                        break;
+                    }
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA: {
+                        Element current = elements.peek();
+                        if (current != null && current.key != null) {
+                            current.text.append(xml.getText());
+                        }
+                        break;
+                    }
+                    case XMLStreamConstants.END_ELEMENT: {
+                        Element current = elements.pop();
+                        String text = current.text.toString().trim();
+                        // 只有属性没有文本的元素（如<server port="8080"/>）不作为配置项，避免与属性的key冲突
+                        if (current.key != null && !current.hasChildren && (!text.isEmpty() || !current.hasAttributes)) {
+                            properties.put(current.key, text);
+                        }
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("XML配置解析失败: " + e.getMessage(), e);
+        } finally {
+            if (xml != null) {
+                try {
+                    xml.close();
+                } catch (XMLStreamException ignored) {
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * 子元素的路径：同名元素第二次出现时，把第一个元素已输出的配置项改为[0]下标，之后依次递增
+     */
+    private String childPath(Map<String, String> properties, Element parent, String name) {
+        String path = parent.path.isEmpty() ? name : parent.path + "." + name;
+        int count = parent.childCounts.merge(name, 1, Integer::sum);
+        if (count == 1) {
+            return path;
+        }
+        if (count == 2) {
+            renamePrefix(properties, path, path + "[0]");
+        }
+        return path + "[" + (count - 1) + "]";
+    }
+
+    /**
+     * 把key为from或以from.、from[开头的配置项改为以to开头，保持原有顺序
+     */
+    private void renamePrefix(Map<String, String> properties, String from, String to) {
+        Map<String, String> renamed = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith(from) && (key.length() == from.length()
+                    || key.charAt(from.length()) == '.' || key.charAt(from.length()) == '[')) {
+                key = to + key.substring(from.length());
+            }
+            renamed.put(key, entry.getValue());
+        }
+        properties.clear();
+        properties.putAll(renamed);
+    }
+
+    private static class Element {
+        final String path;
+        final String key;       // 作为配置项时的key，不作为配置项时为null
+        final StringBuilder text = new StringBuilder();
+        // 子元素名 -> 出现次数，用于给同名兄弟元素加下标
+        final Map<String, Integer> childCounts = new HashMap<>();
+        boolean hasChildren;
+        boolean hasAttributes;
+
+        Element(String path, String key) {
+            this.path = path;
+            this.key = key;
+        }
+    }
+}
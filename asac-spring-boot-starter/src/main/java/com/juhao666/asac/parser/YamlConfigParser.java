@@ -0,0 +1,144 @@
+package com.juhao666.asac.parser;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * yaml解析器 - 基于SnakeYAML事件API，不构建节点树
+ * 多文档时后面的文档覆盖前面的同名配置项；支持锚点/别名以及合并键（<<: *anchor 和 <<: [*a, *b]，
+ * 列表中靠前的映射优先），与Spring一样，null值按空串处理
+ */
+public class YamlConfigParser implements ConfigParser {
+
+    private static final String MERGE_KEY = "<<";
+    private static final Set<String> NULL_VALUES = Set.of("", "~", "null", "Null", "NULL");
+
+    @Override
+    public Set<String> getTypes() {
+        return Set.of("yaml", "yml");
+    }
+
+    @Override
+    public Map<String, String> parse(Reader reader) throws IOException {
+        PropertyFlattener flattener = new PropertyFlattener();
+        // 锚点 -> 标量值，或集合内的配置项（key为相对锚点路径的后缀）
+        Map<String, Object> anchors = new HashMap<>();
+        // 与flattener中的对象/数组一一对应：[路径, 锚点]
+        Deque<String[]> collections = new ArrayDeque<>();
+        // 正在处理 <<: [*a, *b] 形式的合并键
+        boolean mergingSequence = false;
+
+        Yaml yaml = new Yaml(new LoaderOptions());
+        for (Event event : yaml.parse(reader)) {
+            if (mergingSequence) {
+                if (event.is(Event.ID.SequenceEnd)) {
+                    mergingSequence = false;
+                } else if (event instanceof AliasEvent) {
+                    mergeAlias(flattener, anchors.get(((AliasEvent) event).getAnchor()));
+                } else {
+                    throw new IOException("YAML合并键的列表只能包含别名: " + event.getStartMark());
+                }
+            } else if (event.is(Event.ID.SequenceStart) && MERGE_KEY.equals(flattener.pendingKey())) {
+                flattener.skipKey();
+                mergingSequence = true;
+            } else if (event instanceof ScalarEvent) {
+                ScalarEvent scalar = (ScalarEvent) event;
+                String value = scalar.isPlain() && NULL_VALUES.contains(scalar.getValue()) ? "" : scalar.getValue();
+                if (flattener.expectsKey()) {
+                    flattener.key(scalar.getValue());
+                } else {
+                    if (scalar.getAnchor() != null) {
+                        anchors.put(scalar.getAnchor(), value);
+                    }
+                    flattener.value(value);
+                }
+            } else if (event instanceof CollectionStartEvent) {
+                String anchor = ((CollectionStartEvent) event).getAnchor();
+                String path = event.is(Event.ID.MappingStart) ? flattener.startObject() : flattener.startArray();
+                collections.push(new String[]{path, anchor});
+            } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                flattener.end();
+                String[] collection = collections.pop();
+                if (collection[1] != null) {
+                    anchors.put(collection[1], collectEntries(flattener.getProperties(), collection[0]));
+                }
+            } else if (event instanceof AliasEvent) {
+                Object anchored = anchors.get(((AliasEvent) event).getAnchor());
+                if (flattener.expectsKey()) {
+                    // 标量别名作为键
+                    flattener.key(String.valueOf(anchored));
+                } else {
+                    applyAlias(flattener, anchored);
+                }
+            }
+        }
+        return flattener.getProperties();
+    }
+
+    /**
+     * 展开别名：标量直接作为值；集合按相对路径复制，合并键时并入当前对象且不覆盖已有的配置项
+     */
+    @SuppressWarnings("unchecked")
+    private void applyAlias(PropertyFlattener flattener, Object anchored) throws IOException {
+        if (anchored == null) {
+            flattener.value("");
+            return;
+        }
+        if (anchored instanceof String) {
+            flattener.value((String) anchored);
+            return;
+        }
+        Map<String, String> entries = (Map<String, String>) anchored;
+        if (MERGE_KEY.equals(flattener.pendingKey())) {
+            flattener.skipKey();
+            mergeAlias(flattener, entries);
+        } else {
+            String path = flattener.nextPath();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                flattener.put(path + entry.getKey(), entry.getValue(), true);
+            }
+        }
+    }
+
+    /**
+     * 把锚定的映射并入当前对象，不覆盖已有的配置项：
+     * 对象中已出现的键和列表中靠前的映射优先，之后出现的键仍会覆盖合并进来的值
+     */
+    @SuppressWarnings("unchecked")
+    private void mergeAlias(PropertyFlattener flattener, Object anchored) throws IOException {
+        if (!(anchored instanceof Map)) {
+            throw new IOException("YAML合并键只能引用映射");
+        }
+        String basePath = flattener.currentPath();
+        for (Map.Entry<String, String> entry : ((Map<String, String>) anchored).entrySet()) {
+            String suffix = entry.getKey();
+            String path = basePath.isEmpty() && suffix.startsWith(".") ? suffix.substring(1) : basePath + suffix;
+            flattener.put(path, entry.getValue(), false);
+        }
+    }
+
+    private Map<String, String> collectEntries(Map<String, String> properties, String path) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith(path) && (path.isEmpty()
+                    || (key.length() > path.length() && (key.charAt(path.length()) == '.' || key.charAt(path.length()) == '[')))) {
+                entries.put(key.substring(path.length()), entry.getValue());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,41 @@
+package com.juhao666.asac.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonConfigParserTest {
+
+    private final JsonConfigParser parser = new JsonConfigParser();
+
+    @Test
+    void flattensObjectsAndArrays() throws IOException {
+        String content = "{\"server\":{\"port\":8080,\"ssl\":true},"
+                + "\"hosts\":[\"a\",{\"name\":\"b\",\"tags\":[1,2]}],"
+                + "\"matrix\":[[1,2],[3]],"
+                + "\"empty\":null}";
+
+        Map<String, String> properties = parser.parse(new StringReader(content));
+        assertEquals(Map.of(
+                "server.port", "8080",
+                "server.ssl", "true",
+                "hosts[0]", "a",
+                "hosts[1].name", "b",
+                "hosts[1].tags[0]", "1",
+                "hosts[1].tags[1]", "2",
+                "matrix[0][0]", "1",
+                "matrix[0][1]", "2",
+                "matrix[1][0]", "3",
+                "empty", ""), properties);
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        assertThrows(IOException.class, () -> parser.parse(new StringReader("{\"a\": ")));
+    }
+}
@@ -0,0 +1,37 @@
+package com.juhao666.asac.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PropertiesConfigParserTest {
+
+    private final PropertiesConfigParser parser = new PropertiesConfigParser();
+
+    @Test
+    void parsesSeparatorsCommentsAndContinuations() throws IOException {
+        String content = "# 注释\n"
+                + "server.port=8080\n"
+                + "app.name: demo\n"
+                + "app.owner team  \n"
+                + "app.list=a,\\\n    b\n"
+                + "app.greeting=\\u4f60\\u597d\n";
+
+        Map<String, String> properties = parser.parse(new StringReader(content));
+        assertEquals(Map.of(
+                "server.port", "8080",
+                "app.name", "demo",
+                "app.owner", "team",
+                "app.list", "a,b",
+                "app.greeting", "你好"), properties);
+    }
+
+    @Test
+    void keepsEmptyValues() throws IOException {
+        assertEquals(Map.of("empty", ""), parser.parse(new StringReader("empty=\n")));
+    }
+}
@@ -0,0 +1,76 @@
+package com.juhao666.asac.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class XmlConfigParserTest {
+
+    private final XmlConfigParser parser = new XmlConfigParser();
+
+    @Test
+    void flattensElementsAndAttributes() throws IOException {
+        String content = "<config>"
+                + "<server port=\"8080\"><host>localhost</host></server>"
+                + "<name><![CDATA[demo]]></name>"
+                + "</config>";
+
+        assertEquals(Map.of(
+                "server.port", "8080",
+                "server.host", "localhost",
+                "name", "demo"), parser.parse(new StringReader(content)));
+    }
+
+    @Test
+    void indexesRepeatedSiblings() throws IOException {
+        String content = "<config><servers>"
+                + "<server port=\"1\">a</server>"
+                + "<server>b</server>"
+                + "<server><h>x</h></server>"
+                + "</servers><one>1</one></config>";
+
+        assertEquals(Map.of(
+                "servers.server[0].port", "1",
+                "servers.server[0]", "a",
+                "servers.server[1]", "b",
+                "servers.server[2].h", "x",
+                "one", "1"), parser.parse(new StringReader(content)));
+    }
+
+    @Test
+    void indexesRepeatedSiblingsPerParent() throws IOException {
+        String content = "<config>"
+                + "<group><item>a</item></group>"
+                + "<group><item>b</item><item>c</item></group>"
+                + "</config>";
+
+        assertEquals(Map.of(
+                "group[0].item", "a",
+                "group[1].item[0]", "b",
+                "group[1].item[1]", "c"), parser.parse(new StringReader(content)));
+    }
+
+    @Test
+    void readsJavaPropertiesXmlFormat() throws IOException {
+        String content = "<?xml version=\"1.0\"?>"
+                + "<properties><comment>ignored</comment>"
+                + "<entry key=\"server.port\">8080</entry>"
+                + "<entry key=\"app.name\"> demo </entry>"
+                + "</properties>";
+
+        assertEquals(Map.of(
+                "server.port", "8080",
+                "app.name", "demo"), parser.parse(new StringReader(content)));
+    }
+
+    @Test
+    void rejectsDoctype() {
+        String content = "<!DOCTYPE config [<!ENTITY x SYSTEM \"file:///etc/passwd\">]><config><a>&x;</a></config>";
+        assertThrows(IOException.class, () -> parser.parse(new StringReader(content)));
+    }
+}
@@ -0,0 +1,113 @@
+package com.juhao666.asac.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class YamlConfigParserTest {
+
+    private final YamlConfigParser parser = new YamlConfigParser();
+
+    @Test
+    void flattensMappingsAndSequences() throws IOException {
+        String content = "server:\n"
+                + "  port: 8080\n"
+                + "hosts:\n"
+                + "  - a\n"
+                + "  - name: b\n"
+                + "empty:\n"
+                + "tilde: ~\n"
+                + "quoted: 'null'\n";
+
+        assertEquals(Map.of(
+                "server.port", "8080",
+                "hosts[0]", "a",
+                "hosts[1].name", "b",
+                "empty", "",
+                "tilde", "",
+                "quoted", "null"), parse(content));
+    }
+
+    @Test
+    void expandsAnchorsAndAliases() throws IOException {
+        String content = "defaults: &defaults\n"
+                + "  timeout: 30\n"
+                + "  retry: 3\n"
+                + "port: &port 8080\n"
+                + "copy: *defaults\n"
+                + "admin-port: *port\n";
+
+        assertEquals(Map.of(
+                "defaults.timeout", "30",
+                "defaults.retry", "3",
+                "port", "8080",
+                "copy.timeout", "30",
+                "copy.retry", "3",
+                "admin-port", "8080"), parse(content));
+    }
+
+    @Test
+    void mergeKeyKeepsExplicitKeys() throws IOException {
+        String content = "base: &base\n"
+                + "  k: 1\n"
+                + "  x: base\n"
+                + "c:\n"
+                + "  x: before\n"
+                + "  <<: *base\n"
+                + "  y: after\n";
+
+        Map<String, String> properties = parse(content);
+        assertEquals("1", properties.get("c.k"));
+        assertEquals("before", properties.get("c.x"));
+        assertEquals("after", properties.get("c.y"));
+    }
+
+    @Test
+    void mergeKeyListPrefersEarlierMappings() throws IOException {
+        String content = "a: &a\n"
+                + "  k: 1\n"
+                + "  x: a\n"
+                + "b: &b\n"
+                + "  x: b\n"
+                + "  y: b\n"
+                + "c:\n"
+                + "  <<: [*a, *b]\n"
+                + "  x: over\n";
+
+        Map<String, String> properties = parse(content);
+        assertEquals("1", properties.get("c.k"));
+        assertEquals("over", properties.get("c.x"));
+        assertEquals("b", properties.get("c.y"));
+    }
+
+    @Test
+    void rejectsMergeOfScalar() {
+        String content = "v: &v 1\n"
+                + "c:\n"
+                + "  <<: [*v]\n";
+        assertThrows(IOException.class, () -> parse(content));
+    }
+
+    @Test
+    void laterDocumentsOverrideEarlierOnes() throws IOException {
+        String content = "server:\n"
+                + "  port: 8080\n"
+                + "  host: a\n"
+                + "---\n"
+                + "server:\n"
+                + "  port: 9090\n";
+
+        assertEquals(Map.of(
+                "server.port", "9090",
+                "server.host", "a"), parse(content));
+    }
+
+    private Map<String, String> parse(String content) throws IOException {
+        return parser.parse(new StringReader(content));
+    }
+}
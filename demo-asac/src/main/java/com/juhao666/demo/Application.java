@@ -1,10 +1,12 @@
 package com.juhao666.demo;
 
+import com.juhao666.demo.cluster.DistroProtocol;
 import com.juhao666.demo.model.ServiceInstance;
 import com.juhao666.demo.store.RegistryStore;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -40,11 +42,16 @@ public class Application {
         System.out.println("  - 服务注册: POST /api/v1/instance/register");
         System.out.println("  - 服务注销: POST /api/v1/instance/deregister");
         System.out.println("  - 心跳上报: POST /api/v1/instance/heartbeat");
+        System.out.println("  - 轻量心跳: PUT /api/v1/instance/beat?serviceName={name}&instanceId={id}");
         System.out.println("  - 服务发现: GET /api/v1/instance/list?serviceName={name}");
-        System.out.println("  - 获取配置: GET /api/v1/config?dataId={id}&group={group}");
+        System.out.println("  - 增量发现: GET /api/v1/instance/delta?serviceName={name}&revision={revision}");
+        System.out.println("  - 服务订阅: POST /api/v1/instance/subscribe");
+        System.out.println("  - 获取配置: GET /api/v1/config?dataId={id}&group={group}[&consistent=true]");
+        System.out.println("  - 配置内容: GET /api/v1/config/content?dataId={id}&group={group}");
         System.out.println("  - 发布配置: POST /api/v1/config");
         System.out.println("  - 监听配置: GET /api/v1/config/listener");
         System.out.println("  - 查看所有服务: GET /api/v1/instance/all");
+        System.out.println("  - 集群成员: GET /api/v1/cluster/members");
         System.out.println("==========================================");
 
         // 启动健康检查定时任务
@@ -93,6 +100,17 @@ public class Application {
     @Autowired
     private RegistryStore registryStore;
 
+    @Autowired
+    private DistroProtocol distroProtocol;
+
+    // 健康检查间隔（时间轮tick间隔）
+    @Value("${custom.registry.health-check.interval:1000}")
+    private long healthCheckInterval;
+
+    // 配置快照间隔
+    @Value("${custom.registry.config.snapshot-interval:60000}")
+    private long snapshotInterval;
+
     // 心跳线程池
     private static final ScheduledExecutorService HEALTH_CHECK_EXECUTOR =
             Executors.newScheduledThreadPool(2);
@@ -109,6 +127,7 @@ public class Application {
     public void init() {
         // 启动健康检查任务
         startHealthCheckTask();
+        startSnapshotTask();
         System.out.println("✅ 注册中心初始化完成，健康检查任务已启动");
     }
 
@@ -131,50 +150,42 @@ public class Application {
         }
         System.out.println("🛑 健康检查任务已停止");
     }
+
+    /**
+     * 配置快照任务：定期把配置写成快照并删除已覆盖的WAL段，
+     * 保证重启恢复时间不随配置变更历史增长
+     */
+    private void startSnapshotTask() {
+        HEALTH_CHECK_EXECUTOR.scheduleWithFixedDelay(() -> {
+            try {
+                registryStore.snapshotConfigs();
+            } catch (Exception e) {
+                System.err.println("配置快照任务异常: " + e.getMessage());
+            }
+        }, snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+    }
     /**
-     * 修改后的健康检查任务，从RegistryStore中获取数据
+     * 健康检查任务：每个tick推进一次RegistryStore的心跳过期时间轮，
+     * 只处理到期的实例，不再全量拷贝和遍历注册表
      */
     private void startHealthCheckTask() {
         HEALTH_CHECK_EXECUTOR.scheduleAtFixedRate(() -> {
             try {
-                long currentTime = System.currentTimeMillis();
-                int removedCount = 0;
-
-                // 从RegistryStore获取所有服务
-                Map<String, List<ServiceInstance>> allServices =
-                        registryStore.getAllServices();
-
-                for (Map.Entry<String, List<ServiceInstance>> entry : allServices.entrySet()) {
-                    String serviceName = entry.getKey();
-                    List<ServiceInstance> instances = entry.getValue();
-
-                    // 遍历实例检查心跳
-                    for (ServiceInstance instance : instances) {
-                        String instanceId = instance.getInstanceId();
-                        Long lastHeartbeat = registryStore.getHeartbeatTime(instanceId);
-
-                        // 30秒内没有心跳视为不健康
-                        if (lastHeartbeat == null ||
-                                (currentTime - lastHeartbeat) > 30000) {
-
-                            // 从RegistryStore中注销实例
-                            boolean deregistered = registryStore.deregisterInstance(serviceName, instanceId);
-                            if (deregistered) {
-                                removedCount++;
-                                System.out.println("⚠️ 移除不健康实例: " + serviceName + " [" + instanceId + "]");
-                            }
-                        }
-                    }
+                List<ServiceInstance> removed = registryStore.evictExpiredInstances();
+                for (ServiceInstance instance : removed) {
+                    System.out.println("⚠️ 移除不健康实例: " + instance.getServiceName() + " [" + instance.getInstanceId() + "]");
                 }
 
-                if (removedCount > 0) {
-                    System.out.println("健康检查完成，移除 " + removedCount + " 个不健康实例");
+                if (!removed.isEmpty()) {
+                    System.out.println("健康检查完成，移除 " + removed.size() + " 个不健康实例");
+                    // 集群模式下由负责节点把注销复制给其他节点
+                    distroProtocol.replicateExpired(removed);
                 }
 
             } catch (Exception e) {
                 System.err.println("健康检查任务异常: " + e.getMessage());
             }
-        }, 10, 10, TimeUnit.SECONDS);
+        }, healthCheckInterval, healthCheckInterval, TimeUnit.MILLISECONDS);
     }
 
 }
@@ -0,0 +1,146 @@
+package com.juhao666.demo.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.juhao666.demo.listener.ServiceChangeListener;
+import com.juhao666.demo.model.Result;
+import com.juhao666.demo.store.MappedConfigContentStore;
+import com.juhao666.demo.store.RegistryStore;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 响应缓存 - 缓存序列化后的响应字节
+ * 注册中心读远多于写，同一份未变更的数据不必每次都重新组装Result并交给Jackson序列化。
+ * 每个条目记录生成时的数据版本号（来自RegistryStore），版本号变化即失效：
+ * 服务发现按服务的快照版本号，配置按该配置自身的版本号和MD5，互不影响；
+ * 服务发现结果还依赖实例健康状态，额外记录一个过期时间。
+ * 配置内容使用内存映射存储（storage-mode: mmap）时不缓存配置响应，否则所有配置内容又会回到堆内
+ */
+@Component
+public class ResponseCache implements ServiceChangeListener {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappedConfigContentStore contentStore;
+
+    @Autowired
+    private RegistryStore registryStore;
+
+    // 服务发现：serviceName -> 响应
+    private final Map<String, CachedResponse> instanceLists = new ConcurrentHashMap<>();
+    // 配置：dataId:group -> 响应
+    private final Map<String, CachedResponse> configs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        registryStore.addServiceChangeListener(this);
+    }
+
+    /**
+     * 服务的实例全部注销后移除其缓存条目，避免已消失的服务一直占用内存
+     */
+    @Override
+    public void onServiceChanged(String serviceName, long revision) {
+        if (registryStore.getSnapshot(serviceName).isEmpty()) {
+            evictInstanceList(serviceName);
+        }
+    }
+
+    /**
+     * 获取缓存的服务发现响应，版本号不一致或已过期时返回null
+     */
+    public byte[] getInstanceList(String serviceName, long version, long now) {
+        return get(instanceLists, serviceName, version, null, now);
+    }
+
+    /**
+     * 序列化并缓存服务发现响应
+     *
+     * @param validUntil 响应的有效期（最早一个实例心跳超时的时间），不晚于当前时间时不缓存
+     */
+    public byte[] putInstanceList(String serviceName, long version, long validUntil, Result result) {
+        return put(instanceLists, serviceName, version, null, validUntil, result);
+    }
+
+    /**
+     * 获取缓存的配置响应，与配置当前的版本号或MD5不一致时返回null
+     */
+    public byte[] getConfig(String key, long version, String md5) {
+        return get(configs, key, version, md5, 0);
+    }
+
+    /**
+     * 序列化并缓存配置响应，mmap模式下只序列化不缓存
+     */
+    public byte[] putConfig(String key, long version, String md5, Result result) {
+        if (contentStore.isEnabled()) {
+            return serialize(result);
+        }
+        return put(configs, key, version, md5, Long.MAX_VALUE, result);
+    }
+
+    /**
+     * 配置不存在时移除缓存条目，避免已删除的配置一直占用内存
+     */
+    public void evictConfig(String key) {
+        configs.remove(key);
+    }
+
+    public void evictInstanceList(String serviceName) {
+        instanceLists.remove(serviceName);
+    }
+
+    /**
+     * 序列化不缓存的响应（如错误响应）
+     */
+    public byte[] serialize(Result result) {
+        try {
+            return objectMapper.writeValueAsBytes(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("响应序列化失败", e);
+        }
+    }
+
+    public int size() {
+        return instanceLists.size() + configs.size();
+    }
+
+    private byte[] get(Map<String, CachedResponse> region, String key, long version, String md5, long now) {
+        CachedResponse cached = region.get(key);
+        if (cached == null || cached.version != version || !Objects.equals(cached.md5, md5) || cached.validUntil <= now) {
+            return null;
+        }
+        return cached.body;
+    }
+
+    private byte[] put(Map<String, CachedResponse> region, String key, long version, String md5, long validUntil,
+                       Result result) {
+        byte[] body = serialize(result);
+        if (validUntil > System.currentTimeMillis()) {
+            region.put(key, new CachedResponse(version, md5, validUntil, body));
+        }
+        return body;
+    }
+
+    private static class CachedResponse {
+        final long version;
+        final String md5;       // 只用于配置，服务发现为null
+        final long validUntil;
+        final byte[] body;
+
+        CachedResponse(long version, String md5, long validUntil, byte[] body) {
+            this.version = version;
+            this.md5 = md5;
+            this.validUntil = validUntil;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.juhao666.demo.cluster;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 集群成员管理
+ * 成员列表来自静态配置（custom.registry.cluster.members），节点健康状态由节点间通信的成败维护：
+ * 连续失败达到阈值后标记为不健康，任一次通信成功立即恢复。
+ * 实例按实例ID哈希到健康节点上，每个实例有且只有一个负责节点（Distro协议的数据分片）
+ */
+@Component
+public class ClusterManager {
+
+    // 是否启用集群模式，关闭时为单机模式
+    @Value("${custom.registry.cluster.enabled:false}")
+    private boolean enabled;
+
+    // 集群成员列表，逗号分隔的ip:port，可包含当前节点
+    @Value("${custom.registry.cluster.members:}")
+    private String memberList;
+
+    // 当前节点地址，需与其他节点成员列表中的写法一致
+    @Value("${custom.registry.cluster.self:127.0.0.1:${server.port:8848}}")
+    private String selfAddress;
+
+    // 连续通信失败多少次后标记节点不健康
+    @Value("${custom.registry.cluster.max-fail-count:2}")
+    private int maxFailCount;
+
+    // 集群成员：address -> 成员，按地址排序保证各节点计算出相同的分片
+    private final Map<String, ClusterMember> members = new ConcurrentSkipListMap<>();
+
+    // 健康成员地址（含当前节点），成员状态变化时整体替换
+    private volatile List<String> healthyMembers = Collections.emptyList();
+
+    @PostConstruct
+    public void init() {
+        members.put(selfAddress, new ClusterMember(selfAddress, true));
+        if (enabled) {
+            for (String address : memberList.split(",")) {
+                address = address.trim();
+                if (!address.isEmpty() && !members.containsKey(address)) {
+                    // 启动时假设其他节点健康，与对方启动时的视图一致，通信失败后再摘除
+                    members.put(address, new ClusterMember(address, false));
+                }
+            }
+        }
+        refreshHealthyMembers();
+        if (enabled) {
+            System.out.println("✅ 集群模式已启用，当前节点: " + selfAddress + ", 成员: " + members.keySet());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getSelfAddress() {
+        return selfAddress;
+    }
+
+    /**
+     * 获取所有成员（含当前节点）
+     */
+    public List<ClusterMember> getMembers() {
+        return new ArrayList<>(members.values());
+    }
+
+    /**
+     * 获取其他节点地址（不论健康与否）
+     */
+    public List<String> getPeers() {
+        List<String> peers = new ArrayList<>(members.size());
+        for (ClusterMember member : members.values()) {
+            if (!member.isSelf()) {
+                peers.add(member.getAddress());
+            }
+        }
+        return peers;
+    }
+
+    /**
+     * 获取负责该实例的节点地址：实例ID哈希到健康节点上
+     * 节点故障后它负责的实例自动分摊到剩余的健康节点
+     */
+    public String responsibleMember(String instanceId) {
+        List<String> healthy = healthyMembers;
+        if (!enabled || healthy.size() <= 1 || instanceId == null) {
+            return selfAddress;
+        }
+        return healthy.get(Math.floorMod(instanceId.hashCode(), healthy.size()));
+    }
+
+    /**
+     * 当前节点是否负责该实例
+     */
+    public boolean isResponsible(String instanceId) {
+        return selfAddress.equals(responsibleMember(instanceId));
+    }
+
+    /**
+     * 与节点通信成功
+     */
+    public void markHealthy(String address) {
+        ClusterMember member = members.get(address);
+        if (member == null || member.isSelf()) {
+            return;
+        }
+        member.setLastActiveTime(System.currentTimeMillis());
+        member.setFailCount(0);
+        if (!member.isHealthy()) {
+            member.setHealthy(true);
+            refreshHealthyMembers();
+            System.out.println("✅ 集群节点恢复: " + address);
+        }
+    }
+
+    /**
+     * 与节点通信失败，连续失败达到阈值后摘除
+     */
+    public void markFailed(String address) {
+        ClusterMember member = members.get(address);
+        if (member == null || member.isSelf()) {
+            return;
+        }
+        member.setFailCount(member.getFailCount() + 1);
+        if (member.isHealthy() && member.getFailCount() >= maxFailCount) {
+            member.setHealthy(false);
+            refreshHealthyMembers();
+            System.out.println("⚠️ 集群节点不可用: " + address + "，其负责的实例转由其他节点接管");
+        }
+    }
+
+    private synchronized void refreshHealthyMembers() {
+        List<String> healthy = new ArrayList<>(members.size());
+        for (ClusterMember member : members.values()) {
+            if (member.isHealthy()) {
+                healthy.add(member.getAddress());
+            }
+        }
+        healthyMembers = Collections.unmodifiableList(healthy);
+    }
+}
@@ -0,0 +1,37 @@
+package com.juhao666.demo.cluster;
+
+/**
+ * 集群节点
+ */
+public class ClusterMember {
+    private String address;          // 节点地址 ip:port
+    private boolean self;            // 是否为当前节点
+    private volatile boolean healthy;         // 是否健康：最近一次通信成功
+    private volatile long lastActiveTime;     // 最近一次通信成功的时间
+    private volatile int failCount;           // 连续通信失败次数
+
+    public ClusterMember() {
+    }
+
+    public ClusterMember(String address, boolean self) {
+        this.address = address;
+        this.self = self;
+        this.healthy = true;
+        this.lastActiveTime = System.currentTimeMillis();
+    }
+
+    public String getAddress() { return address; }
+    public void setAddress(String address) { this.address = address; }
+
+    public boolean isSelf() { return self; }
+    public void setSelf(boolean self) { this.self = self; }
+
+    public boolean isHealthy() { return healthy; }
+    public void setHealthy(boolean healthy) { this.healthy = healthy; }
+
+    public long getLastActiveTime() { return lastActiveTime; }
+    public void setLastActiveTime(long lastActiveTime) { this.lastActiveTime = lastActiveTime; }
+
+    public int getFailCount() { return failCount; }
+    public void setFailCount(int failCount) { this.failCount = failCount; }
+}
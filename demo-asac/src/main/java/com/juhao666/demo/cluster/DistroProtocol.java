@@ -0,0 +1,448 @@
+package com.juhao666.demo.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.juhao666.demo.cluster.raft.RaftNode;
+import com.juhao666.demo.model.ConfigItem;
+import com.juhao666.demo.model.Result;
+import com.juhao666.demo.model.ServiceInstance;
+import com.juhao666.demo.store.RegistryStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 集群数据同步协议（参考Nacos Distro，AP模式）
+ * - 每个实例按实例ID哈希到一个负责节点，注册/心跳/注销由负责节点处理，其他节点收到时转发过去
+ * - 负责节点处理完写请求后立即响应客户端，变更记录异步批量复制给其他节点（同一个key只发最新的一条）
+ * - 定期校验：负责节点把所负责实例的校验和发给其他节点，对方据此续约副本的心跳，
+ *   缺失或不一致的实例由负责节点补发；节点故障后它负责的实例由剩余节点接管
+ * - 节点启动时从任一其他节点加载全量数据
+ * 配置发布在任一节点完成后同样异步复制，按更新时间后写者胜；启用Raft时配置改由Raft复制，这里只同步实例
+ */
+@Component
+public class DistroProtocol {
+
+    // 转发请求标记，收到带该标记的请求时直接在本节点处理，避免成员视图不一致时来回转发
+    public static final String FORWARDED_HEADER = "X-Asac-Forwarded";
+    // 集群内部请求的来源节点
+    public static final String MEMBER_HEADER = "X-Asac-Member";
+
+    private static final String VERIFY_INSTANCES = "instances";
+    private static final String VERIFY_CONFIGS = "configs";
+
+    @Autowired
+    private ClusterManager clusterManager;
+
+    @Autowired
+    private RegistryStore registryStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RaftNode raftNode;
+
+    // 变更记录的合并发送间隔
+    @Value("${custom.registry.cluster.sync-delay:200}")
+    private long syncDelay;
+
+    // 校验间隔，需明显小于心跳超时时间，否则副本会在两次校验之间过期
+    @Value("${custom.registry.cluster.verify-interval:5000}")
+    private long verifyInterval;
+
+    @Value("${custom.registry.cluster.connect-timeout:1000}")
+    private int connectTimeout;
+
+    @Value("${custom.registry.cluster.read-timeout:3000}")
+    private int readTimeout;
+
+    private RestTemplate restTemplate;
+
+    // 待复制的变更记录：节点地址 -> (合并key -> 最新记录)，访问时对内层Map加锁
+    private final Map<String, Map<String, DistroRecord>> pendingRecords = new ConcurrentHashMap<>();
+
+    private final AtomicInteger syncThreadIndex = new AtomicInteger(1);
+    private ScheduledExecutorService syncExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!clusterManager.isEnabled()) {
+            return;
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        restTemplate = new RestTemplate(requestFactory);
+
+        for (String peer : clusterManager.getPeers()) {
+            pendingRecords.put(peer, new LinkedHashMap<>());
+        }
+
+        syncExecutor = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "Cluster-Sync-Thread-" + syncThreadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncExecutor.execute(this::loadFromPeers);
+        syncExecutor.scheduleWithFixedDelay(this::syncPending, syncDelay, syncDelay, TimeUnit.MILLISECONDS);
+        syncExecutor.scheduleWithFixedDelay(this::verify, verifyInterval, verifyInterval, TimeUnit.MILLISECONDS);
+        System.out.println("✅ 集群数据同步已启动，同步间隔: " + syncDelay + "ms, 校验间隔: " + verifyInterval + "ms");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (syncExecutor == null) {
+            return;
+        }
+        syncExecutor.shutdown();
+        try {
+            if (!syncExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                syncExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            syncExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("🛑 集群数据同步已停止");
+    }
+
+    // ==================== 写请求转发 ====================
+
+    /**
+     * 写请求是否需要转发给负责节点：集群模式下本节点不负责该实例，且请求不是其他节点转发来的
+     */
+    public boolean shouldForward(String instanceId, String forwardedHeader) {
+        return clusterManager.isEnabled() && forwardedHeader == null && !clusterManager.isResponsible(instanceId);
+    }
+
+    /**
+     * 把写请求转发给负责该实例的节点
+     *
+     * @param path /api/v1之后的路径（含查询参数）
+     * @return 负责节点的响应，转发失败时返回null，由本节点兜底处理
+     */
+    public Result forward(String instanceId, HttpMethod method, String path, Object body) {
+        String target = clusterManager.responsibleMember(instanceId);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(FORWARDED_HEADER, clusterManager.getSelfAddress());
+        try {
+            Result result = restTemplate.exchange("http://" + target + "/api/v1" + path, method,
+                    new HttpEntity<>(body, headers), Result.class).getBody();
+            clusterManager.markHealthy(target);
+            return result;
+        } catch (RestClientException e) {
+            clusterManager.markFailed(target);
+            System.err.println("转发到负责节点失败，由本节点处理: " + target + " [" + instanceId + "] " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ==================== 变更复制 ====================
+
+    /**
+     * 复制实例注册（含元数据变化的重新注册）
+     */
+    public void replicateRegister(ServiceInstance instance) {
+        if (clusterManager.isEnabled() && instance != null) {
+            enqueueAll(DistroRecord.register(instance));
+        }
+    }
+
+    /**
+     * 复制实例注销
+     */
+    public void replicateDeregister(String serviceName, String instanceId) {
+        if (clusterManager.isEnabled()) {
+            enqueueAll(DistroRecord.deregister(serviceName, instanceId));
+        }
+    }
+
+    /**
+     * 复制心跳超时被注销的实例：只有负责节点的判断有效，副本过期只在本地移除
+     */
+    public void replicateExpired(List<ServiceInstance> expired) {
+        if (!clusterManager.isEnabled()) {
+            return;
+        }
+        for (ServiceInstance instance : expired) {
+            if (clusterManager.isResponsible(instance.getInstanceId())) {
+                enqueueAll(DistroRecord.deregister(instance.getServiceName(), instance.getInstanceId()));
+            }
+        }
+    }
+
+    /**
+     * 复制配置发布
+     */
+    public void replicateConfig(ConfigItem config) {
+        if (clusterManager.isEnabled() && !raftNode.isEnabled() && config != null) {
+            enqueueAll(DistroRecord.configPublish(config));
+        }
+    }
+
+    // ==================== 接收其他节点的数据 ====================
+
+    /**
+     * 应用其他节点复制过来的变更，只写本地不再向外复制
+     */
+    public int applyRecords(String source, List<DistroRecord> records) {
+        clusterManager.markHealthy(source);
+        int applied = 0;
+        for (DistroRecord record : records) {
+            try {
+                if (DistroRecord.REGISTER.equals(record.getType())) {
+                    registryStore.registerInstance(record.getInstance());
+                    applied++;
+                } else if (DistroRecord.DEREGISTER.equals(record.getType())) {
+                    if (registryStore.deregisterInstance(record.getServiceName(), record.getInstanceId())) {
+                        applied++;
+                    }
+                } else if (DistroRecord.CONFIG_PUBLISH.equals(record.getType()) && !raftNode.isEnabled()) {
+                    if (registryStore.applyReplicatedConfig(record.getConfig())) {
+                        applied++;
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("应用同步记录失败: " + record.getType() + " " + record.mergeKey() + " " + e.getMessage());
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * 处理其他节点的校验请求：一致的实例续约心跳，返回本节点缺失或不一致的实例ID和配置key
+     */
+    public Map<String, List<String>> handleVerify(String source, Map<String, Map<String, String>> checksums) {
+        clusterManager.markHealthy(source);
+        List<String> staleInstances = new ArrayList<>();
+        Map<String, String> instanceChecksums = checksums.getOrDefault(VERIFY_INSTANCES, Collections.emptyMap());
+        for (Map.Entry<String, String> entry : instanceChecksums.entrySet()) {
+            ServiceInstance instance = registryStore.getInstance(entry.getKey());
+            if (instance != null && entry.getValue().equals(checksum(instance))) {
+                registryStore.heartbeat(entry.getKey());
+            } else {
+                staleInstances.add(entry.getKey());
+            }
+        }
+
+        List<String> staleConfigs = new ArrayList<>();
+        Map<String, String> configChecksums = checksums.getOrDefault(VERIFY_CONFIGS, Collections.emptyMap());
+        for (Map.Entry<String, String> entry : configChecksums.entrySet()) {
+            String[] config = parseConfigKey(entry.getKey());
+            if (!entry.getValue().equals(registryStore.getConfigMd5(config[0], config[1]))) {
+                staleConfigs.add(entry.getKey());
+            }
+        }
+
+        Map<String, List<String>> stale = new HashMap<>();
+        stale.put(VERIFY_INSTANCES, staleInstances);
+        stale.put(VERIFY_CONFIGS, staleConfigs);
+        return stale;
+    }
+
+    /**
+     * 本节点的全量数据，供新启动的节点加载
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> data = new HashMap<>();
+        data.put(VERIFY_INSTANCES, new ArrayList<>(registryStore.getAllInstances()));
+        data.put(VERIFY_CONFIGS, registryStore.getAllConfigs());
+        return data;
+    }
+
+    // ==================== 后台任务 ====================
+
+    /**
+     * 批量发送待复制的记录，发送失败的记录放回队列（已有更新的记录时丢弃旧记录）
+     * 不健康的节点暂不发送，由校验任务探测其恢复
+     */
+    private void syncPending() {
+        for (ClusterMember member : clusterManager.getMembers()) {
+            if (member.isSelf() || !member.isHealthy()) {
+                continue;
+            }
+            Map<String, DistroRecord> pending = pendingRecords.get(member.getAddress());
+            List<DistroRecord> batch;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    continue;
+                }
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            Result result = post(member.getAddress(), "/sync", batch);
+            if (result == null || !result.isSuccess()) {
+                synchronized (pending) {
+                    for (DistroRecord record : batch) {
+                        pending.putIfAbsent(record.mergeKey(), record);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 向所有节点（包括不健康的节点，兼作探活）发送本节点负责的实例和全部配置的校验和，
+     * 补发对方缺失或不一致的数据
+     */
+    private void verify() {
+        try {
+            Map<String, String> instanceChecksums = new HashMap<>();
+            for (ServiceInstance instance : registryStore.getAllInstances()) {
+                if (clusterManager.isResponsible(instance.getInstanceId())) {
+                    instanceChecksums.put(instance.getInstanceId(), checksum(instance));
+                }
+            }
+            Map<String, String> configChecksums = new HashMap<>();
+            if (!raftNode.isEnabled()) {
+                for (ConfigItem config : registryStore.getAllConfigMetadata()) {
+                    configChecksums.put(configKey(config.getDataId(), config.getGroup()), config.getMd5());
+                }
+            }
+            Map<String, Map<String, String>> checksums = new HashMap<>();
+            checksums.put(VERIFY_INSTANCES, instanceChecksums);
+            checksums.put(VERIFY_CONFIGS, configChecksums);
+
+            for (String peer : clusterManager.getPeers()) {
+                Result result = post(peer, "/verify", checksums);
+                if (result != null && result.isSuccess() && result.getData() != null) {
+                    resend(peer, objectMapper.convertValue(result.getData(),
+                            new TypeReference<Map<String, List<String>>>() {}));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("集群校验任务异常: " + e.getMessage());
+        }
+    }
+
+    private void resend(String peer, Map<String, List<String>> stale) {
+        int count = 0;
+        for (String instanceId : stale.getOrDefault(VERIFY_INSTANCES, Collections.emptyList())) {
+            ServiceInstance instance = registryStore.getInstance(instanceId);
+            if (instance != null) {
+                enqueue(peer, DistroRecord.register(instance));
+                count++;
+            }
+        }
+        for (String key : stale.getOrDefault(VERIFY_CONFIGS, Collections.emptyList())) {
+            String[] config = parseConfigKey(key);
+            ConfigItem item = registryStore.getConfig(config[0], config[1]);
+            if (item != null) {
+                enqueue(peer, DistroRecord.configPublish(item));
+                count++;
+            }
+        }
+        if (count > 0) {
+            System.out.println("🔄 集群校验发现不一致，向 " + peer + " 补发 " + count + " 条记录");
+        }
+    }
+
+    /**
+     * 启动时从第一个可用的节点加载全量实例和配置
+     */
+    private void loadFromPeers() {
+        for (String peer : clusterManager.getPeers()) {
+            try {
+                Result result = restTemplate.getForObject("http://" + peer + "/api/v1/cluster/snapshot", Result.class);
+                if (result == null || !result.isSuccess()) {
+                    continue;
+                }
+                clusterManager.markHealthy(peer);
+                Map<String, Object> data = objectMapper.convertValue(result.getData(),
+                        new TypeReference<Map<String, Object>>() {});
+                List<ServiceInstance> instances = objectMapper.convertValue(data.get(VERIFY_INSTANCES),
+                        new TypeReference<List<ServiceInstance>>() {});
+                List<ConfigItem> configs = objectMapper.convertValue(data.get(VERIFY_CONFIGS),
+                        new TypeReference<List<ConfigItem>>() {});
+                for (ServiceInstance instance : instances) {
+                    registryStore.registerInstance(instance);
+                }
+                if (!raftNode.isEnabled()) {
+                    for (ConfigItem config : configs) {
+                        registryStore.applyReplicatedConfig(config);
+                    }
+                }
+                System.out.println("✅ 已从集群节点 " + peer + " 加载全量数据，实例数: " + instances.size()
+                        + ", 配置数: " + configs.size());
+                return;
+            } catch (Exception e) {
+                clusterManager.markFailed(peer);
+            }
+        }
+        System.out.println("⚠️ 没有可用的集群节点，跳过全量数据加载");
+    }
+
+    // ==================== 私有方法 ====================
+
+    private void enqueueAll(DistroRecord record) {
+        for (String peer : pendingRecords.keySet()) {
+            enqueue(peer, record);
+        }
+    }
+
+    private void enqueue(String peer, DistroRecord record) {
+        Map<String, DistroRecord> pending = pendingRecords.get(peer);
+        synchronized (pending) {
+            // 先移除再放入，保证合并后的记录按最新的变更顺序发送
+            pending.remove(record.mergeKey());
+            pending.put(record.mergeKey(), record);
+        }
+    }
+
+    private Result post(String peer, String path, Object body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(MEMBER_HEADER, clusterManager.getSelfAddress());
+        try {
+            Result result = restTemplate.exchange("http://" + peer + "/api/v1/cluster" + path, HttpMethod.POST,
+                    new HttpEntity<>(body, headers), Result.class).getBody();
+            clusterManager.markHealthy(peer);
+            return result;
+        } catch (RestClientException e) {
+            clusterManager.markFailed(peer);
+            return null;
+        }
+    }
+
+    /**
+     * 实例校验和：覆盖会被复制的字段，与心跳时间无关
+     */
+    private String checksum(ServiceInstance instance) {
+        return Integer.toHexString(Objects.hash(instance.getServiceName(), instance.getIp(), instance.getPort(),
+                instance.getStatus(), instance.getMetadata()));
+    }
+
+    private String configKey(String dataId, String group) {
+        return dataId + "@" + group;
+    }
+
+    private String[] parseConfigKey(String key) {
+        int index = key.lastIndexOf('@');
+        return new String[]{key.substring(0, index), key.substring(index + 1)};
+    }
+}
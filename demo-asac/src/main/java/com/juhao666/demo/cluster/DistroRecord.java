@@ -0,0 +1,86 @@
+package com.juhao666.demo.cluster;
+
+import com.juhao666.demo.model.ConfigItem;
+import com.juhao666.demo.model.ServiceInstance;
+
+/**
+ * 集群间异步复制的一条变更记录
+ * 同一个key的记录在发送前合并，只发送最新的一条
+ */
+public class DistroRecord {
+    public static final String REGISTER = "REGISTER";
+    public static final String DEREGISTER = "DEREGISTER";
+    public static final String CONFIG_PUBLISH = "CONFIG_PUBLISH";
+
+    private String type;              // 记录类型
+    private String serviceName;       // 服务名（实例记录）
+    private String instanceId;        // 实例ID（实例记录）
+    private ServiceInstance instance; // 注册的实例（REGISTER）
+    private String dataId;            // 配置ID（配置记录）
+    private String group;             // 配置分组（配置记录）
+    private ConfigItem config;        // 发布的配置（CONFIG_PUBLISH）
+    private long timestamp;           // 变更时间
+
+    public DistroRecord() {
+    }
+
+    public static DistroRecord register(ServiceInstance instance) {
+        DistroRecord record = new DistroRecord();
+        record.type = REGISTER;
+        record.serviceName = instance.getServiceName();
+        record.instanceId = instance.getInstanceId();
+        record.instance = instance;
+        record.timestamp = System.currentTimeMillis();
+        return record;
+    }
+
+    public static DistroRecord deregister(String serviceName, String instanceId) {
+        DistroRecord record = new DistroRecord();
+        record.type = DEREGISTER;
+        record.serviceName = serviceName;
+        record.instanceId = instanceId;
+        record.timestamp = System.currentTimeMillis();
+        return record;
+    }
+
+    public static DistroRecord configPublish(ConfigItem config) {
+        DistroRecord record = new DistroRecord();
+        record.type = CONFIG_PUBLISH;
+        record.dataId = config.getDataId();
+        record.group = config.getGroup();
+        record.config = config;
+        record.timestamp = config.getUpdateTime();
+        return record;
+    }
+
+    /**
+     * 合并key：同一实例或同一配置的记录后到的覆盖先到的
+     */
+    public String mergeKey() {
+        return instanceId != null ? "instance:" + instanceId : "config:" + dataId + "@" + group;
+    }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getServiceName() { return serviceName; }
+    public void setServiceName(String serviceName) { this.serviceName = serviceName; }
+
+    public String getInstanceId() { return instanceId; }
+    public void setInstanceId(String instanceId) { this.instanceId = instanceId; }
+
+    public ServiceInstance getInstance() { return instance; }
+    public void setInstance(ServiceInstance instance) { this.instance = instance; }
+
+    public String getDataId() { return dataId; }
+    public void setDataId(String dataId) { this.dataId = dataId; }
+
+    public String getGroup() { return group; }
+    public void setGroup(String group) { this.group = group; }
+
+    public ConfigItem getConfig() { return config; }
+    public void setConfig(ConfigItem config) { this.config = config; }
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+}
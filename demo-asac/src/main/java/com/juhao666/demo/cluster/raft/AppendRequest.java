@@ -0,0 +1,46 @@
+package com.juhao666.demo.cluster.raft;
+
+import java.util.List;
+
+/**
+ * 日志复制请求（AppendEntries RPC），不带日志时即为心跳
+ */
+public class AppendRequest {
+    private long term;                   // Leader的任期
+    private String leaderId;             // Leader地址，Follower据此转发写请求
+    private long prevLogIndex;           // 新日志之前一条日志的索引
+    private long prevLogTerm;            // 新日志之前一条日志的任期
+    private List<RaftLogEntry> entries;  // 待复制的日志
+    private long leaderCommit;           // Leader的提交索引
+
+    public AppendRequest() {
+    }
+
+    public AppendRequest(long term, String leaderId, long prevLogIndex, long prevLogTerm,
+                         List<RaftLogEntry> entries, long leaderCommit) {
+        this.term = term;
+        this.leaderId = leaderId;
+        this.prevLogIndex = prevLogIndex;
+        this.prevLogTerm = prevLogTerm;
+        this.entries = entries;
+        this.leaderCommit = leaderCommit;
+    }
+
+    public long getTerm() { return term; }
+    public void setTerm(long term) { this.term = term; }
+
+    public String getLeaderId() { return leaderId; }
+    public void setLeaderId(String leaderId) { this.leaderId = leaderId; }
+
+    public long getPrevLogIndex() { return prevLogIndex; }
+    public void setPrevLogIndex(long prevLogIndex) { this.prevLogIndex = prevLogIndex; }
+
+    public long getPrevLogTerm() { return prevLogTerm; }
+    public void setPrevLogTerm(long prevLogTerm) { this.prevLogTerm = prevLogTerm; }
+
+    public List<RaftLogEntry> getEntries() { return entries; }
+    public void setEntries(List<RaftLogEntry> entries) { this.entries = entries; }
+
+    public long getLeaderCommit() { return leaderCommit; }
+    public void setLeaderCommit(long leaderCommit) { this.leaderCommit = leaderCommit; }
+}
@@ -0,0 +1,41 @@
+package com.juhao666.demo.cluster.raft;
+
+/**
+ * 日志复制响应
+ */
+public class AppendResponse {
+    private long term;            // Follower的当前任期
+    private boolean success;      // prevLog是否匹配并已追加
+    private long matchIndex;      // 成功时：Follower与Leader一致的最后一条日志索引
+    private long conflictIndex;   // 失败时：Leader下次从该索引开始重发，一次跳过整个冲突任期
+
+    public AppendResponse() {
+    }
+
+    public static AppendResponse success(long term, long matchIndex) {
+        AppendResponse response = new AppendResponse();
+        response.term = term;
+        response.success = true;
+        response.matchIndex = matchIndex;
+        return response;
+    }
+
+    public static AppendResponse failure(long term, long conflictIndex) {
+        AppendResponse response = new AppendResponse();
+        response.term = term;
+        response.conflictIndex = conflictIndex;
+        return response;
+    }
+
+    public long getTerm() { return term; }
+    public void setTerm(long term) { this.term = term; }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public long getMatchIndex() { return matchIndex; }
+    public void setMatchIndex(long matchIndex) { this.matchIndex = matchIndex; }
+
+    public long getConflictIndex() { return conflictIndex; }
+    public void setConflictIndex(long conflictIndex) { this.conflictIndex = conflictIndex; }
+}
@@ -0,0 +1,44 @@
+package com.juhao666.demo.cluster.raft;
+
+import com.juhao666.demo.model.ConfigItem;
+
+import java.util.List;
+
+/**
+ * 快照安装请求（InstallSnapshot RPC），Follower需要的日志已被Leader压缩时发送
+ * 快照即Leader在lastIncludedIndex处的全部配置
+ */
+public class InstallSnapshotRequest {
+    private long term;                // Leader的任期
+    private String leaderId;          // Leader地址
+    private long lastIncludedIndex;   // 快照覆盖到的最后一条日志的索引
+    private long lastIncludedTerm;    // 该日志的任期
+    private List<ConfigItem> configs; // 快照中的全部配置
+
+    public InstallSnapshotRequest() {
+    }
+
+    public InstallSnapshotRequest(long term, String leaderId, long lastIncludedIndex, long lastIncludedTerm,
+                                  List<ConfigItem> configs) {
+        this.term = term;
+        this.leaderId = leaderId;
+        this.lastIncludedIndex = lastIncludedIndex;
+        this.lastIncludedTerm = lastIncludedTerm;
+        this.configs = configs;
+    }
+
+    public long getTerm() { return term; }
+    public void setTerm(long term) { this.term = term; }
+
+    public String getLeaderId() { return leaderId; }
+    public void setLeaderId(String leaderId) { this.leaderId = leaderId; }
+
+    public long getLastIncludedIndex() { return lastIncludedIndex; }
+    public void setLastIncludedIndex(long lastIncludedIndex) { this.lastIncludedIndex = lastIncludedIndex; }
+
+    public long getLastIncludedTerm() { return lastIncludedTerm; }
+    public void setLastIncludedTerm(long lastIncludedTerm) { this.lastIncludedTerm = lastIncludedTerm; }
+
+    public List<ConfigItem> getConfigs() { return configs; }
+    public void setConfigs(List<ConfigItem> configs) { this.configs = configs; }
+}
@@ -0,0 +1,510 @@
+package com.juhao666.demo.cluster.raft;
+
+import com.juhao666.demo.model.ConfigItem;
+import com.juhao666.demo.store.ConfigWriteAheadLog;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Raft日志和元数据的持久化存储
+ * - 日志文件raft.log：记录格式与配置WAL相同 [int 长度][int CRC32][payload]，追加后fsync才返回；
+ *   启动时遇到不完整或校验失败的记录即截断；与Leader冲突时从冲突位置截断文件
+ * - 追加写入或fsync失败时截断回追加之前的位置，内存中的日志保持不变；截断也失败时拒绝之后的追加
+ * - 元数据文件raft.meta：当前任期、投票对象、已应用索引和快照位置，先写临时文件并fsync再原子重命名，最后fsync目录
+ * - 压缩：已应用的日志由配置WAL和快照持久化，可以丢弃；快照位置（最后一条被丢弃日志的索引和任期）记录在元数据中，
+ *   先写元数据再重写日志文件，重写前宕机时启动加载会跳过文件中已被压缩的日志
+ * 未压缩的日志同时保存在内存中。
+ * 本类不是线程安全的，由RaftNode持锁调用
+ */
+@Component
+public class RaftLog {
+
+    private static final int META_MAGIC = 0x52414654; // "RAFT"
+    private static final String LOG_FILE_NAME = "raft.log";
+    private static final String META_FILE_NAME = "raft.meta";
+    private static final String META_TEMP_FILE_NAME = "raft.meta.tmp";
+    private static final String LOG_TEMP_FILE_NAME = "raft.log.tmp";
+
+    @Value("${custom.registry.cluster.raft.log-dir:data/raft}")
+    private String logDir = "data/raft";
+
+    private Path dir;
+    private FileChannel channel;
+
+    // 内存中的日志，entries.get(i)的索引为snapshotIndex+i+1；positions.get(i)为该条目在文件中的起始位置
+    private final List<RaftLogEntry> entries = new ArrayList<>();
+    private final List<Long> positions = new ArrayList<>();
+
+    private long currentTerm;
+    private String votedFor;
+    private long lastApplied;
+    // 已压缩的最后一条日志的索引和任期，没有压缩过时都为0
+    private long snapshotIndex;
+    private long snapshotTerm;
+
+    // 追加失败且无法截断回有效位置，文件末尾可能残留不完整的记录
+    private boolean broken;
+
+    /**
+     * 加载元数据和日志，只在启用Raft时调用
+     */
+    public void open() throws IOException {
+        dir = Paths.get(logDir);
+        Files.createDirectories(dir);
+        loadMeta();
+
+        channel = FileChannel.open(dir.resolve(LOG_FILE_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ConfigWriteAheadLog.syncDirectory(dir);
+        long fileSize = channel.size();
+        long validPosition = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dir.resolve(LOG_FILE_NAME))))) {
+            while (true) {
+                RaftLogEntry entry;
+                int length;
+                try {
+                    length = in.readInt();
+                    int checksum = in.readInt();
+                    // 长度字段本身可能已损坏，超出文件剩余大小时视为不完整记录
+                    if (length <= 0 || length > fileSize - validPosition - 8) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    if (checksum(payload) != checksum) {
+                        break;
+                    }
+                    entry = decode(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                long position = validPosition;
+                validPosition += 8 + length;
+                // 压缩时先写元数据再重写文件，文件中可能还留有已压缩的日志
+                if (entry.getIndex() <= snapshotIndex) {
+                    continue;
+                }
+                if (entry.getIndex() != lastIndex() + 1) {
+                    throw new IOException("Raft日志不连续，期望索引 " + (lastIndex() + 1) + "，实际为 " + entry.getIndex());
+                }
+                entries.add(entry);
+                positions.add(position);
+            }
+        }
+        if (validPosition < fileSize) {
+            System.err.println("⚠️ Raft日志末尾存在不完整记录，截断到位置: " + validPosition);
+            channel.truncate(validPosition);
+        }
+        channel.position(validPosition);
+        lastApplied = Math.min(lastApplied, lastIndex());
+        System.out.println("✅ Raft日志已加载: " + dir.toAbsolutePath() + ", 日志数: " + entries.size()
+                + ", 快照索引: " + snapshotIndex + ", 任期: " + currentTerm + ", 已应用: " + lastApplied);
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("关闭Raft日志失败: " + e.getMessage());
+        }
+    }
+
+    // ==================== 日志 ====================
+
+    public long lastIndex() {
+        return snapshotIndex + entries.size();
+    }
+
+    public long lastTerm() {
+        return termAt(lastIndex());
+    }
+
+    public long getSnapshotIndex() {
+        return snapshotIndex;
+    }
+
+    /**
+     * 获取指定索引的任期，快照位置（没有快照时为索引0）返回快照的任期，已压缩或超出日志范围返回-1
+     */
+    public long termAt(long index) {
+        if (index == snapshotIndex) {
+            return snapshotTerm;
+        }
+        if (index < snapshotIndex || index > lastIndex()) {
+            return -1;
+        }
+        return entries.get(offset(index)).getTerm();
+    }
+
+    /**
+     * 获取指定索引的日志，索引需大于快照索引
+     */
+    public RaftLogEntry get(long index) {
+        return entries.get(offset(index));
+    }
+
+    /**
+     * 获取从fromIndex开始的最多maxCount条日志，fromIndex需大于快照索引
+     */
+    public List<RaftLogEntry> slice(long fromIndex, int maxCount) {
+        if (fromIndex > lastIndex()) {
+            return Collections.emptyList();
+        }
+        int from = offset(fromIndex);
+        return new ArrayList<>(entries.subList(from, Math.min(entries.size(), from + maxCount)));
+    }
+
+    /**
+     * 获取某个任期在日志中的第一条索引，用于快速回退nextIndex
+     */
+    public long firstIndexOfTerm(long term, long fromIndex) {
+        long index = fromIndex;
+        while (index > 1 && termAt(index - 1) == term) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * 追加日志并fsync，写入失败时日志保持追加之前的状态
+     * 失败后不能在不完整的记录之后继续追加：重启时加载会停在该记录处，丢掉之后已向Leader确认的日志
+     */
+    public void append(List<RaftLogEntry> newEntries) throws IOException {
+        if (newEntries.isEmpty()) {
+            return;
+        }
+        if (broken) {
+            throw new IOException("Raft日志写入失败且无法恢复，已停止追加");
+        }
+        ByteBuffer[] buffers = new ByteBuffer[newEntries.size()];
+        List<Long> newPositions = new ArrayList<>(newEntries.size());
+        long start = channel.position();
+        long position = start;
+        for (int i = 0; i < newEntries.size(); i++) {
+            byte[] record = encode(newEntries.get(i));
+            buffers[i] = ByteBuffer.wrap(record);
+            newPositions.add(position);
+            position += record.length;
+        }
+        try {
+            while (buffers[buffers.length - 1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            discardFrom(start);
+            throw e;
+        }
+        positions.addAll(newPositions);
+        entries.addAll(newEntries);
+    }
+
+    private void discardFrom(long position) {
+        try {
+            channel.truncate(position);
+            channel.position(position);
+            channel.force(false);
+        } catch (IOException e) {
+            broken = true;
+            System.err.println("⚠️ Raft日志无法截断回位置 " + position + "，停止追加: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 删除index及之后的日志（与Leader冲突的未提交日志）
+     */
+    public void truncateFrom(long index) throws IOException {
+        if (index > lastIndex()) {
+            return;
+        }
+        if (index <= snapshotIndex) {
+            throw new IOException("不能截断已压缩的Raft日志: " + index);
+        }
+        int from = offset(index);
+        long position = positions.get(from);
+        // 先截断文件再修改内存，截断失败时内存与文件仍然一致
+        channel.truncate(position);
+        channel.position(position);
+        channel.force(true);
+        entries.subList(from, entries.size()).clear();
+        positions.subList(from, positions.size()).clear();
+    }
+
+    /**
+     * 压缩日志：丢弃index及之前的日志（需已应用且状态已持久化）
+     * 先持久化快照位置再重写日志文件；重写失败时保留原文件，启动加载会跳过其中已压缩的日志
+     */
+    public void compactTo(long index) throws IOException {
+        if (index <= snapshotIndex) {
+            return;
+        }
+        if (index > lastIndex()) {
+            throw new IOException("压缩位置超出日志范围: " + index);
+        }
+        discardThrough(index, termAt(index), lastApplied);
+    }
+
+    /**
+     * 安装Leader发来的快照：快照位置的日志与快照一致时保留之后的日志，否则丢弃全部日志
+     * 调用方需已把快照中的配置应用到状态机
+     */
+    public void installSnapshot(long index, long term) throws IOException {
+        if (index <= snapshotIndex) {
+            return;
+        }
+        long applied = Math.max(lastApplied, index);
+        if (index <= lastIndex() && termAt(index) == term) {
+            discardThrough(index, term, applied);
+            return;
+        }
+        saveSnapshot(index, term, applied);
+        entries.clear();
+        positions.clear();
+        rewriteLog();
+    }
+
+    /**
+     * 丢弃index及之前的日志，index需在当前日志范围内
+     */
+    private void discardThrough(long index, long term, long applied) throws IOException {
+        int count = offset(index) + 1;
+        saveSnapshot(index, term, applied);
+        entries.subList(0, count).clear();
+        positions.subList(0, count).clear();
+        rewriteLog();
+    }
+
+    private void saveSnapshot(long index, long term, long applied) throws IOException {
+        long previousIndex = snapshotIndex;
+        long previousTerm = snapshotTerm;
+        long previousApplied = lastApplied;
+        snapshotIndex = index;
+        snapshotTerm = term;
+        lastApplied = applied;
+        try {
+            saveMeta();
+        } catch (IOException e) {
+            snapshotIndex = previousIndex;
+            snapshotTerm = previousTerm;
+            lastApplied = previousApplied;
+            throw e;
+        }
+    }
+
+    /**
+     * 把内存中剩余的日志写入临时文件，fsync后原子替换日志文件
+     * 快照位置已持久化，重写失败不影响正确性，只是原文件中已压缩的日志要到下次压缩才会被清理
+     */
+    private void rewriteLog() {
+        Path temp = dir.resolve(LOG_TEMP_FILE_NAME);
+        List<Long> newPositions = new ArrayList<>(entries.size());
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long position = 0;
+                for (RaftLogEntry entry : entries) {
+                    ByteBuffer record = ByteBuffer.wrap(encode(entry));
+                    newPositions.add(position);
+                    position += record.remaining();
+                    while (record.hasRemaining()) {
+                        out.write(record);
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(temp, dir.resolve(LOG_FILE_NAME), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            ConfigWriteAheadLog.syncDirectory(dir);
+        } catch (IOException e) {
+            System.err.println("⚠️ Raft日志压缩时重写文件失败，保留原文件: " + e.getMessage());
+            return;
+        }
+        // 原文件已被替换，之后的追加写入新文件
+        FileChannel previous = channel;
+        try {
+            channel = FileChannel.open(dir.resolve(LOG_FILE_NAME), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            positions.clear();
+            positions.addAll(newPositions);
+            broken = false;
+        } catch (IOException e) {
+            broken = true;
+            System.err.println("⚠️ Raft日志压缩后无法重新打开日志文件，停止追加: " + e.getMessage());
+            return;
+        }
+        try {
+            previous.close();
+        } catch (IOException e) {
+            System.err.println("关闭压缩前的Raft日志文件失败: " + e.getMessage());
+        }
+    }
+
+    // ==================== 元数据 ====================
+
+    public long getCurrentTerm() {
+        return currentTerm;
+    }
+
+    public String getVotedFor() {
+        return votedFor;
+    }
+
+    public long getLastApplied() {
+        return lastApplied;
+    }
+
+    /**
+     * 持久化任期和投票对象，投票和任期变化必须在响应之前落盘
+     */
+    public void saveVote(long term, String candidate) throws IOException {
+        currentTerm = term;
+        votedFor = candidate;
+        saveMeta();
+    }
+
+    /**
+     * 持久化已应用索引，重启后从下一条开始应用，避免把旧配置重新应用一遍
+     */
+    public void saveApplied(long index) throws IOException {
+        lastApplied = index;
+        saveMeta();
+    }
+
+    private void saveMeta() throws IOException {
+        Path temp = dir.resolve(META_TEMP_FILE_NAME);
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(META_MAGIC);
+            out.writeLong(currentTerm);
+            ConfigWriteAheadLog.writeString(out, votedFor);
+            out.writeLong(lastApplied);
+            out.writeLong(snapshotIndex);
+            out.writeLong(snapshotTerm);
+            out.flush();
+            byte[] payload = bytes.toByteArray();
+            DataOutputStream fileOut = new DataOutputStream(file);
+            fileOut.write(payload);
+            fileOut.writeInt(checksum(payload));
+            fileOut.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, dir.resolve(META_FILE_NAME), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // 重命名落盘后才能响应投票，否则宕机后任期和投票可能回退，同一任期投出两票
+        ConfigWriteAheadLog.syncDirectory(dir);
+    }
+
+    private void loadMeta() throws IOException {
+        Path target = dir.resolve(META_FILE_NAME);
+        if (!Files.exists(target)) {
+            return;
+        }
+        byte[] data = Files.readAllBytes(target);
+        if (data.length < 4) {
+            throw new IOException("Raft元数据损坏: " + target);
+        }
+        byte[] payload = new byte[data.length - 4];
+        System.arraycopy(data, 0, payload, 0, payload.length);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, payload.length, 4));
+        // 元数据是原子替换的，校验失败说明磁盘损坏；任期和投票丢失可能导致重复投票，不能静默忽略
+        if (in.readInt() != checksum(payload)) {
+            throw new IOException("Raft元数据校验失败: " + target);
+        }
+        DataInputStream meta = new DataInputStream(new ByteArrayInputStream(payload));
+        if (meta.readInt() != META_MAGIC) {
+            throw new IOException("Raft元数据格式不支持: " + target);
+        }
+        currentTerm = meta.readLong();
+        votedFor = ConfigWriteAheadLog.readString(meta);
+        lastApplied = meta.readLong();
+        snapshotIndex = meta.readLong();
+        snapshotTerm = meta.readLong();
+    }
+
+    /**
+     * 日志索引在内存列表中的下标
+     */
+    private int offset(long index) {
+        return (int) (index - snapshotIndex - 1);
+    }
+
+    // ==================== 编解码 ====================
+
+    private byte[] encode(RaftLogEntry entry) {
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(payloadBytes);
+            out.writeLong(entry.getIndex());
+            out.writeLong(entry.getTerm());
+            ConfigWriteAheadLog.writeString(out, entry.getType());
+            out.writeLong(entry.getTimestamp());
+            ConfigItem config = entry.getConfig();
+            out.writeBoolean(config != null);
+            if (config != null) {
+                ConfigWriteAheadLog.writeString(out, config.getDataId());
+                ConfigWriteAheadLog.writeString(out, config.getGroup());
+                ConfigWriteAheadLog.writeString(out, config.getContent());
+                ConfigWriteAheadLog.writeString(out, config.getType());
+            }
+            out.flush();
+            byte[] payload = payloadBytes.toByteArray();
+
+            ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(payload.length + 8);
+            DataOutputStream recordOut = new DataOutputStream(recordBytes);
+            recordOut.writeInt(payload.length);
+            recordOut.writeInt(checksum(payload));
+            recordOut.write(payload);
+            recordOut.flush();
+            return recordBytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Raft日志编码失败", e);
+        }
+    }
+
+    private RaftLogEntry decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        RaftLogEntry entry = new RaftLogEntry();
+        entry.setIndex(in.readLong());
+        entry.setTerm(in.readLong());
+        entry.setType(ConfigWriteAheadLog.readString(in));
+        entry.setTimestamp(in.readLong());
+        if (in.readBoolean()) {
+            ConfigItem config = new ConfigItem();
+            config.setDataId(ConfigWriteAheadLog.readString(in));
+            config.setGroup(ConfigWriteAheadLog.readString(in));
+            config.setContent(ConfigWriteAheadLog.readString(in));
+            config.setType(ConfigWriteAheadLog.readString(in));
+            entry.setConfig(config);
+        }
+        return entry;
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        return (int) crc32.getValue();
+    }
+}
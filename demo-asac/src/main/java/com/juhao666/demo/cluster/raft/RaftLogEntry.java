@@ -0,0 +1,43 @@
+package com.juhao666.demo.cluster.raft;
+
+import com.juhao666.demo.model.ConfigItem;
+
+/**
+ * Raft日志条目
+ */
+public class RaftLogEntry {
+    public static final String NOOP = "NOOP";                      // 新Leader上任时提交的空条目
+    public static final String CONFIG_PUBLISH = "CONFIG_PUBLISH";  // 配置发布
+
+    private long index;          // 日志索引，从1开始
+    private long term;           // 写入时Leader的任期
+    private String type;         // 条目类型
+    private ConfigItem config;   // 发布的配置（CONFIG_PUBLISH）
+    private long timestamp;      // Leader写入时间，作为配置的更新时间，保证各节点应用结果一致
+
+    public RaftLogEntry() {
+    }
+
+    public RaftLogEntry(long index, long term, String type, ConfigItem config, long timestamp) {
+        this.index = index;
+        this.term = term;
+        this.type = type;
+        this.config = config;
+        this.timestamp = timestamp;
+    }
+
+    public long getIndex() { return index; }
+    public void setIndex(long index) { this.index = index; }
+
+    public long getTerm() { return term; }
+    public void setTerm(long term) { this.term = term; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public ConfigItem getConfig() { return config; }
+    public void setConfig(ConfigItem config) { this.config = config; }
+
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+}
@@ -0,0 +1,948 @@
+package com.juhao666.demo.cluster.raft;
+
+import com.juhao666.demo.cluster.ClusterManager;
+import com.juhao666.demo.cluster.DistroProtocol;
+import com.juhao666.demo.model.ConfigItem;
+import com.juhao666.demo.model.Response;
+import com.juhao666.demo.model.Result;
+import com.juhao666.demo.store.ConfigWriteAheadLog;
+import com.juhao666.demo.store.RegistryStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Raft复制的配置存储（简化实现）
+ * 配置发布必须先写入Raft日志并复制到多数节点才确认，确认后的发布不会丢失，所有节点按日志顺序应用。
+ * - 选举：Follower在选举超时内没有收到Leader消息则发起选举，获得多数票成为Leader；
+ *   只投票给日志不比自己旧的候选人，保证新Leader包含所有已提交的日志
+ * - 复制：Leader向每个节点批量发送AppendEntries，日志不匹配时按冲突任期快速回退；
+ *   当前任期的日志复制到多数节点即提交，由单独的应用线程按顺序写入RegistryStore
+ * - 写请求：只由Leader处理，Follower收到发布请求转发给Leader
+ * - 读请求：默认直接读本地状态（可能稍旧），读吞吐随节点数扩展；
+ *   线性一致读使用ReadIndex：向Leader取当前提交索引（Leader通过一轮心跳确认自己仍是Leader），
+ *   等本地应用到该索引后再读本地状态
+ * - 压缩：已应用的日志超过snapshot-threshold条时丢弃（状态已由配置WAL和快照持久化，因此要求启用WAL）；
+ *   Follower需要的日志已被压缩时，Leader发送InstallSnapshot，内容为自己已应用的全部配置
+ * 集群成员沿用custom.registry.cluster.members，不支持成员变更
+ */
+@Component
+public class RaftNode {
+
+    public enum Role { FOLLOWER, CANDIDATE, LEADER }
+
+    // 一次AppendEntries的结果：已追上、需要立即继续发送、节点不可达
+    private enum ReplicateResult { DONE, MORE, FAILED }
+
+    @Autowired
+    private ClusterManager clusterManager;
+
+    @Autowired
+    private RegistryStore registryStore;
+
+    @Autowired
+    private ConfigWriteAheadLog configWal;
+
+    @Autowired
+    private RaftLog raftLog;
+
+    // 是否使用Raft复制配置（需同时启用集群模式），关闭时配置按Distro协议异步复制
+    @Value("${custom.registry.cluster.raft.enabled:false}")
+    private boolean raftEnabled;
+
+    // 选举超时下限，实际超时在[electionTimeout, 2*electionTimeout)之间随机，避免同时发起选举
+    @Value("${custom.registry.cluster.raft.election-timeout:1500}")
+    private long electionTimeout;
+
+    // Leader心跳间隔，需明显小于选举超时
+    @Value("${custom.registry.cluster.raft.heartbeat-interval:300}")
+    private long heartbeatInterval;
+
+    // 发布和线性一致读的等待超时
+    @Value("${custom.registry.cluster.raft.request-timeout:5000}")
+    private long requestTimeout;
+
+    // 单次AppendEntries最多携带的日志数
+    @Value("${custom.registry.cluster.raft.max-batch-size:64}")
+    private int maxBatchSize;
+
+    // 应用已提交日志失败后的重试间隔
+    @Value("${custom.registry.cluster.raft.apply-retry-interval:1000}")
+    private long applyRetryInterval;
+
+    // 已应用但未压缩的日志超过该条数时压缩日志
+    @Value("${custom.registry.cluster.raft.snapshot-threshold:1024}")
+    private long snapshotThreshold;
+
+    @Value("${custom.registry.cluster.connect-timeout:1000}")
+    private int connectTimeout;
+
+    @Value("${custom.registry.cluster.read-timeout:3000}")
+    private int readTimeout;
+
+    private RestTemplate restTemplate;
+    private List<String> peers = Collections.emptyList();
+    private String selfAddress;
+
+    // ---- 以下状态由this锁保护，网络调用和应用配置都在锁外进行 ----
+    private Role role = Role.FOLLOWER;
+    private String leaderId;
+    private long commitIndex;
+    private long lastApplied;
+    private long electionDeadline;
+    private long lastHeartbeatTime;
+    // Leader状态：下一条要发送的索引、已确认一致的索引
+    private final Map<String, Long> nextIndex = new HashMap<>();
+    private final Map<String, Long> matchIndex = new HashMap<>();
+    // Leader状态：每个节点最近一次在当前任期内响应的请求的发送时间（nanoTime），用于ReadIndex确认Leader身份
+    private final Map<String, Long> ackSendTime = new HashMap<>();
+    // 等待Leader身份确认的最近一次读请求时间（nanoTime）
+    private long readRequestTime;
+
+    // 应用锁：应用日志、安装快照和生成快照互斥，保证配置状态与lastApplied对应
+    // 加锁顺序为先applyLock再this
+    private final ReentrantLock applyLock = new ReentrantLock();
+
+    // 每个节点同一时间最多一个在途的AppendEntries
+    private final Map<String, AtomicBoolean> inFlight = new ConcurrentHashMap<>();
+    // 等待提交的发布：日志索引 -> 提案
+    private final Map<Long, Proposal> proposals = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private final AtomicInteger replicateThreadIndex = new AtomicInteger(1);
+    private ScheduledExecutorService timerExecutor;
+    private ExecutorService replicateExecutor;
+    private ExecutorService applyExecutor;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        restTemplate = new RestTemplate(requestFactory);
+        selfAddress = clusterManager.getSelfAddress();
+        peers = clusterManager.getPeers();
+        for (String peer : peers) {
+            inFlight.put(peer, new AtomicBoolean());
+        }
+
+        raftLog.open();
+        if (!configWal.isEnabled() && raftLog.getSnapshotIndex() > 0) {
+            // 已压缩的日志只能从WAL恢复的状态继续应用
+            throw new IllegalStateException("Raft日志已压缩到索引 " + raftLog.getSnapshotIndex() + "，需要启用配置WAL");
+        }
+        synchronized (this) {
+            // WAL未启用时RegistryStore重启后为空，需要从头应用日志
+            lastApplied = configWal.isEnabled() ? raftLog.getLastApplied() : 0;
+            commitIndex = lastApplied;
+            resetElectionDeadline();
+        }
+
+        running = true;
+        timerExecutor = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "Raft-Timer-Thread"));
+        replicateExecutor = Executors.newCachedThreadPool(
+                r -> daemon(r, "Raft-Replicate-Thread-" + replicateThreadIndex.getAndIncrement()));
+        applyExecutor = Executors.newSingleThreadExecutor(r -> daemon(r, "Raft-Apply-Thread"));
+        timerExecutor.scheduleWithFixedDelay(this::tick, 50, 50, TimeUnit.MILLISECONDS);
+        applyExecutor.execute(this::applyLoop);
+        System.out.println("✅ Raft配置复制已启动，节点: " + selfAddress + ", 成员数: " + (peers.size() + 1));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (!running) {
+            return;
+        }
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        timerExecutor.shutdownNow();
+        replicateExecutor.shutdownNow();
+        applyExecutor.shutdownNow();
+        for (Proposal proposal : proposals.values()) {
+            proposal.future.completeExceptionally(new IllegalStateException("注册中心正在关闭"));
+        }
+        System.out.println("🛑 Raft配置复制已停止");
+    }
+
+    public boolean isEnabled() {
+        return clusterManager.isEnabled() && raftEnabled;
+    }
+
+    public synchronized boolean isLeader() {
+        return role == Role.LEADER;
+    }
+
+    /**
+     * 获取节点状态
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", isEnabled());
+        status.put("self", selfAddress);
+        status.put("role", role);
+        status.put("leader", leaderId);
+        status.put("term", isEnabled() ? raftLog.getCurrentTerm() : 0);
+        status.put("lastIndex", isEnabled() ? raftLog.lastIndex() : 0);
+        status.put("snapshotIndex", isEnabled() ? raftLog.getSnapshotIndex() : 0);
+        status.put("commitIndex", commitIndex);
+        status.put("lastApplied", lastApplied);
+        if (role == Role.LEADER) {
+            status.put("matchIndex", new HashMap<>(matchIndex));
+        }
+        return status;
+    }
+
+    // ==================== 写请求 ====================
+
+    /**
+     * 发布配置（只能在Leader上调用）：写入日志，复制到多数节点并在本地应用后返回
+     */
+    public ConfigItem publishConfig(ConfigItem config) throws Exception {
+        if (config == null || config.getDataId() == null || config.getContent() == null) {
+            throw new IllegalArgumentException("配置参数无效");
+        }
+        // 在写入日志之前校验，非法的条目一旦提交，各节点应用时都会失败
+        if (!RegistryStore.isValidConfigKey(config.getDataId(), config.getGroup())) {
+            throw new IllegalArgumentException("dataId和group不能包含':'");
+        }
+        if (config.getGroup() == null) {
+            config.setGroup("DEFAULT_GROUP");
+        }
+
+        long index;
+        Proposal proposal;
+        synchronized (this) {
+            if (role != Role.LEADER) {
+                throw new IllegalStateException("当前节点不是Leader: " + selfAddress);
+            }
+            long term = raftLog.getCurrentTerm();
+            index = raftLog.lastIndex() + 1;
+            RaftLogEntry entry = new RaftLogEntry(index, term, RaftLogEntry.CONFIG_PUBLISH, config, System.currentTimeMillis());
+            proposal = new Proposal(term);
+            proposals.put(index, proposal);
+            try {
+                raftLog.append(Collections.singletonList(entry));
+            } catch (IOException e) {
+                proposals.remove(index);
+                throw e;
+            }
+            advanceCommitIndex();
+        }
+        broadcastAppend();
+
+        try {
+            return proposal.future.get(requestTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 日志仍可能在之后提交，调用方不能认为发布失败
+            throw new IllegalStateException("配置提交超时，结果未知: " + config.getDataId());
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            proposals.remove(index);
+        }
+    }
+
+    /**
+     * 把请求转发给Leader，Leader未知时返回错误
+     *
+     * @param path /api/v1之后的路径
+     */
+    public Result forwardToLeader(String path, Object body) {
+        String leader;
+        synchronized (this) {
+            leader = leaderId;
+        }
+        if (leader == null) {
+            return Response.error("集群暂无Leader，请稍后重试");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(DistroProtocol.FORWARDED_HEADER, selfAddress);
+        try {
+            return restTemplate.exchange("http://" + leader + "/api/v1" + path, HttpMethod.POST,
+                    new HttpEntity<>(body, headers), Result.class).getBody();
+        } catch (RestClientException e) {
+            return Response.error("转发到Leader失败: " + leader + " " + e.getMessage());
+        }
+    }
+
+    // ==================== 线性一致读 ====================
+
+    /**
+     * 等待本节点应用到Leader当前的提交索引，之后读取本地状态即为线性一致读
+     */
+    public void awaitConsistentRead() throws Exception {
+        long readIndex;
+        String leader;
+        synchronized (this) {
+            leader = leaderId;
+        }
+        if (isLeader()) {
+            readIndex = readIndex();
+        } else if (leader != null) {
+            Result result = restTemplate.getForObject("http://" + leader + "/api/v1/cluster/raft/read-index", Result.class);
+            if (result == null || !result.isSuccess()) {
+                throw new IllegalStateException("获取ReadIndex失败: " + (result != null ? result.getMessage() : leader));
+            }
+            readIndex = ((Number) result.getData()).longValue();
+        } else {
+            throw new IllegalStateException("集群暂无Leader，请稍后重试");
+        }
+        awaitApplied(readIndex);
+    }
+
+    /**
+     * Leader上获取ReadIndex：记下当前提交索引，再通过一轮心跳确认多数节点仍认可自己是Leader
+     * 同一时间的多个读请求共用一轮心跳
+     */
+    public long readIndex() throws Exception {
+        long deadline = System.currentTimeMillis() + requestTimeout;
+        long index;
+        long requestTime;
+        synchronized (this) {
+            // 新Leader需先提交本任期的日志（上任时的NOOP），才能确定提交索引是最新的
+            while (role == Role.LEADER && raftLog.termAt(commitIndex) != raftLog.getCurrentTerm()) {
+                waitUntil(deadline);
+            }
+            if (role != Role.LEADER) {
+                throw new IllegalStateException("当前节点不是Leader: " + selfAddress);
+            }
+            index = commitIndex;
+            requestTime = System.nanoTime();
+            readRequestTime = Math.max(readRequestTime, requestTime);
+        }
+        broadcastAppend();
+        synchronized (this) {
+            while (role == Role.LEADER && confirmedCount(requestTime) < majority()) {
+                waitUntil(deadline);
+            }
+            if (role != Role.LEADER) {
+                throw new IllegalStateException("Leader已变更，请重试");
+            }
+        }
+        return index;
+    }
+
+    private synchronized void awaitApplied(long index) throws Exception {
+        long deadline = System.currentTimeMillis() + requestTimeout;
+        while (lastApplied < index) {
+            waitUntil(deadline);
+        }
+    }
+
+    // ==================== RPC处理 ====================
+
+    /**
+     * 处理投票请求
+     */
+    public synchronized VoteResponse handleVote(VoteRequest request) throws IOException {
+        if (request.getTerm() > raftLog.getCurrentTerm()) {
+            stepDown(request.getTerm());
+        }
+        boolean upToDate = request.getLastLogTerm() > raftLog.lastTerm()
+                || (request.getLastLogTerm() == raftLog.lastTerm() && request.getLastLogIndex() >= raftLog.lastIndex());
+        boolean granted = request.getTerm() == raftLog.getCurrentTerm()
+                && (raftLog.getVotedFor() == null || raftLog.getVotedFor().equals(request.getCandidateId()))
+                && upToDate;
+        if (granted) {
+            raftLog.saveVote(request.getTerm(), request.getCandidateId());
+            resetElectionDeadline();
+        }
+        return new VoteResponse(raftLog.getCurrentTerm(), granted);
+    }
+
+    /**
+     * 处理日志复制请求
+     */
+    public synchronized AppendResponse handleAppend(AppendRequest request) throws IOException {
+        AppendResponse rejected = acceptLeader(request.getTerm(), request.getLeaderId());
+        if (rejected != null) {
+            return rejected;
+        }
+
+        long prevIndex = request.getPrevLogIndex();
+        List<RaftLogEntry> entries = request.getEntries() != null ? request.getEntries() : Collections.emptyList();
+        long matchIndex = prevIndex + entries.size();
+        long snapshotIndex = raftLog.getSnapshotIndex();
+        if (prevIndex < snapshotIndex) {
+            // 已压缩的日志都已提交，必然与Leader一致，跳过这部分
+            int skip = (int) Math.min(entries.size(), snapshotIndex - prevIndex);
+            entries = entries.subList(skip, entries.size());
+            prevIndex += skip;
+        }
+        if (prevIndex > raftLog.lastIndex()) {
+            return AppendResponse.failure(request.getTerm(), raftLog.lastIndex() + 1);
+        }
+        if (prevIndex >= snapshotIndex) {
+            long prevTerm = raftLog.termAt(prevIndex);
+            if (prevTerm != request.getPrevLogTerm()) {
+                // 跳过整个冲突任期，而不是一条一条回退
+                return AppendResponse.failure(request.getTerm(), raftLog.firstIndexOfTerm(prevTerm, prevIndex));
+            }
+        }
+
+        int i = 0;
+        for (; i < entries.size(); i++) {
+            RaftLogEntry entry = entries.get(i);
+            if (entry.getIndex() > raftLog.lastIndex()) {
+                break;
+            }
+            if (raftLog.termAt(entry.getIndex()) != entry.getTerm()) {
+                // 与Leader冲突的日志一定未提交，删除后以Leader为准
+                raftLog.truncateFrom(entry.getIndex());
+                break;
+            }
+        }
+        if (i < entries.size()) {
+            raftLog.append(entries.subList(i, entries.size()));
+        }
+
+        // 过期或乱序到达的请求matchIndex可能更小，提交索引只能前进
+        long newCommitIndex = Math.min(request.getLeaderCommit(), matchIndex);
+        if (newCommitIndex > commitIndex) {
+            commitIndex = newCommitIndex;
+            notifyAll();
+        }
+        return AppendResponse.success(request.getTerm(), matchIndex);
+    }
+
+    /**
+     * 处理快照安装请求：把配置替换为快照中的内容，丢弃快照覆盖的日志
+     * 配置在应用锁内安装，期间应用线程不会写入，安装完成后从快照之后的日志继续应用
+     */
+    public AppendResponse handleInstallSnapshot(InstallSnapshotRequest request) throws IOException {
+        long index = request.getLastIncludedIndex();
+        synchronized (this) {
+            AppendResponse rejected = acceptLeader(request.getTerm(), request.getLeaderId());
+            if (rejected != null) {
+                return rejected;
+            }
+            if (index <= lastApplied) {
+                return AppendResponse.success(request.getTerm(), index);
+            }
+        }
+
+        applyLock.lock();
+        try {
+            synchronized (this) {
+                // 等待应用锁期间应用线程可能已经追上
+                if (index <= lastApplied) {
+                    return AppendResponse.success(raftLog.getCurrentTerm(), index);
+                }
+            }
+            installConfigs(request.getConfigs() != null ? request.getConfigs() : Collections.emptyList());
+            synchronized (this) {
+                raftLog.installSnapshot(index, request.getLastIncludedTerm());
+                lastApplied = index;
+                commitIndex = Math.max(commitIndex, index);
+                notifyAll();
+                System.out.println("📦 已安装Raft快照，索引: " + index + ", 配置数: "
+                        + (request.getConfigs() != null ? request.getConfigs().size() : 0));
+                return AppendResponse.success(raftLog.getCurrentTerm(), index);
+            }
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    /**
+     * 校验Leader的任期并认可其身份，任期过期时返回拒绝的响应，调用方需持有锁
+     */
+    private AppendResponse acceptLeader(long term, String leader) throws IOException {
+        long currentTerm = raftLog.getCurrentTerm();
+        if (term < currentTerm) {
+            return AppendResponse.failure(currentTerm, 0);
+        }
+        if (term > currentTerm || role != Role.FOLLOWER) {
+            stepDown(term);
+        }
+        if (!leader.equals(leaderId)) {
+            leaderId = leader;
+            System.out.println("📣 Raft Leader: " + leaderId + ", 任期: " + term);
+        }
+        resetElectionDeadline();
+        return null;
+    }
+
+    /**
+     * 把配置替换为快照中的内容：逐个按快照中的更新时间发布（与应用日志相同，幂等），再删除快照中没有的配置
+     */
+    private void installConfigs(List<ConfigItem> configs) {
+        Set<String> keys = new HashSet<>();
+        for (ConfigItem config : configs) {
+            registryStore.publishConfig(copyConfig(config), config.getUpdateTime());
+            keys.add(config.getDataId() + ":" + config.getGroup());
+        }
+        for (ConfigItem local : registryStore.getAllConfigMetadata()) {
+            if (!keys.contains(local.getDataId() + ":" + local.getGroup())) {
+                registryStore.deleteConfig(local.getDataId(), local.getGroup());
+            }
+        }
+    }
+
+    // ==================== 选举 ====================
+
+    private void tick() {
+        try {
+            boolean election = false;
+            boolean heartbeat = false;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                if (role == Role.LEADER) {
+                    heartbeat = now - lastHeartbeatTime >= heartbeatInterval;
+                } else if (now >= electionDeadline) {
+                    election = true;
+                }
+            }
+            if (election) {
+                startElection();
+            } else if (heartbeat) {
+                broadcastAppend();
+            }
+        } catch (Exception e) {
+            System.err.println("Raft定时任务异常: " + e.getMessage());
+        }
+    }
+
+    private void startElection() throws IOException {
+        VoteRequest request;
+        synchronized (this) {
+            role = Role.CANDIDATE;
+            leaderId = null;
+            raftLog.saveVote(raftLog.getCurrentTerm() + 1, selfAddress);
+            resetElectionDeadline();
+            request = new VoteRequest(raftLog.getCurrentTerm(), selfAddress, raftLog.lastIndex(), raftLog.lastTerm());
+            System.out.println("🗳️ 发起Raft选举，任期: " + request.getTerm());
+            if (majority() == 1) {
+                becomeLeader();
+                return;
+            }
+        }
+
+        AtomicInteger votes = new AtomicInteger(1);
+        for (String peer : peers) {
+            replicateExecutor.execute(() -> {
+                VoteResponse response = post(peer, "/vote", request, VoteResponse.class);
+                if (response == null) {
+                    return;
+                }
+                synchronized (this) {
+                    try {
+                        if (response.getTerm() > raftLog.getCurrentTerm()) {
+                            stepDown(response.getTerm());
+                        } else if (role == Role.CANDIDATE && raftLog.getCurrentTerm() == request.getTerm()
+                                && response.isVoteGranted() && votes.incrementAndGet() >= majority()) {
+                            becomeLeader();
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Raft选举状态持久化失败: " + e.getMessage());
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 成为Leader，调用方需持有锁
+     * 上任后立即追加一条NOOP日志，提交它即可同时提交之前任期遗留的日志
+     */
+    private void becomeLeader() throws IOException {
+        role = Role.LEADER;
+        leaderId = selfAddress;
+        long term = raftLog.getCurrentTerm();
+        for (String peer : peers) {
+            nextIndex.put(peer, raftLog.lastIndex() + 1);
+            matchIndex.put(peer, 0L);
+            ackSendTime.put(peer, 0L);
+        }
+        raftLog.append(Collections.singletonList(
+                new RaftLogEntry(raftLog.lastIndex() + 1, term, RaftLogEntry.NOOP, null, System.currentTimeMillis())));
+        advanceCommitIndex();
+        System.out.println("👑 成为Raft Leader，任期: " + term);
+        replicateExecutor.execute(this::broadcastAppend);
+    }
+
+    /**
+     * 发现更大的任期或其他Leader时转为Follower，调用方需持有锁
+     */
+    private void stepDown(long term) throws IOException {
+        if (term > raftLog.getCurrentTerm()) {
+            raftLog.saveVote(term, null);
+        }
+        if (role != Role.FOLLOWER) {
+            System.out.println("📣 Raft节点转为Follower，任期: " + term);
+        }
+        role = Role.FOLLOWER;
+        resetElectionDeadline();
+        notifyAll();
+    }
+
+    private void resetElectionDeadline() {
+        electionDeadline = System.currentTimeMillis() + electionTimeout
+                + ThreadLocalRandom.current().nextLong(electionTimeout);
+    }
+
+    // ==================== 日志复制 ====================
+
+    private void broadcastAppend() {
+        synchronized (this) {
+            if (role != Role.LEADER) {
+                return;
+            }
+            lastHeartbeatTime = System.currentTimeMillis();
+        }
+        for (String peer : peers) {
+            if (inFlight.get(peer).compareAndSet(false, true)) {
+                replicateExecutor.execute(() -> replicateTo(peer));
+            }
+        }
+    }
+
+    /**
+     * 向一个节点持续发送日志直到追上，在途请求结束后如有新日志或新的读请求则继续发送
+     * 节点不可达时不立即重试（连接被拒绝会立刻返回，立即重试会空转复制线程），由下一次心跳重试
+     */
+    private void replicateTo(String peer) {
+        ReplicateResult result = ReplicateResult.MORE;
+        try {
+            while (result == ReplicateResult.MORE && running) {
+                result = replicateOnce(peer);
+            }
+        } catch (Exception e) {
+            result = ReplicateResult.FAILED;
+            System.err.println("Raft日志复制异常: " + peer + " " + e.getMessage());
+        } finally {
+            inFlight.get(peer).set(false);
+        }
+        if (result == ReplicateResult.FAILED) {
+            return;
+        }
+        boolean more;
+        synchronized (this) {
+            more = running && role == Role.LEADER
+                    && (nextIndex.get(peer) <= raftLog.lastIndex() || readRequestTime > ackSendTime.get(peer));
+        }
+        if (more && inFlight.get(peer).compareAndSet(false, true)) {
+            replicateExecutor.execute(() -> replicateTo(peer));
+        }
+    }
+
+    /**
+     * 发送一次AppendEntries，对方需要的日志已被压缩时改为发送快照
+     */
+    private ReplicateResult replicateOnce(String peer) throws IOException {
+        AppendRequest request;
+        long sendTime;
+        synchronized (this) {
+            if (role != Role.LEADER) {
+                return ReplicateResult.DONE;
+            }
+            long next = nextIndex.get(peer);
+            if (next - 1 < raftLog.getSnapshotIndex()) {
+                request = null;
+                sendTime = 0;
+            } else {
+                request = new AppendRequest(raftLog.getCurrentTerm(), selfAddress, next - 1, raftLog.termAt(next - 1),
+                        raftLog.slice(next, maxBatchSize), commitIndex);
+                sendTime = System.nanoTime();
+            }
+        }
+        if (request == null) {
+            return installSnapshotOn(peer);
+        }
+
+        AppendResponse response = post(peer, "/append", request, AppendResponse.class);
+        return handleReplicateResponse(peer, request.getTerm(), request.getPrevLogIndex(), sendTime, response);
+    }
+
+    /**
+     * 向节点发送快照：在应用锁内取出已应用的全部配置，保证内容正好对应lastApplied
+     */
+    private ReplicateResult installSnapshotOn(String peer) throws IOException {
+        InstallSnapshotRequest request;
+        long sendTime;
+        applyLock.lock();
+        try {
+            synchronized (this) {
+                if (role != Role.LEADER) {
+                    return ReplicateResult.DONE;
+                }
+                request = new InstallSnapshotRequest(raftLog.getCurrentTerm(), selfAddress,
+                        lastApplied, raftLog.termAt(lastApplied), null);
+                sendTime = System.nanoTime();
+            }
+            request.setConfigs(registryStore.getAllConfigs());
+        } finally {
+            applyLock.unlock();
+        }
+
+        System.out.println("📦 向节点发送Raft快照: " + peer + ", 索引: " + request.getLastIncludedIndex()
+                + ", 配置数: " + request.getConfigs().size());
+        AppendResponse response = post(peer, "/install-snapshot", request, AppendResponse.class);
+        return handleReplicateResponse(peer, request.getTerm(), request.getLastIncludedIndex(), sendTime, response);
+    }
+
+    /**
+     * 处理AppendEntries或InstallSnapshot的响应
+     *
+     * @param prevLogIndex 请求中新日志之前一条的索引（快照时为快照索引），失败时nextIndex不超过它
+     */
+    private ReplicateResult handleReplicateResponse(String peer, long requestTerm, long prevLogIndex, long sendTime,
+                                                    AppendResponse response) throws IOException {
+        if (response == null) {
+            clusterManager.markFailed(peer);
+            return ReplicateResult.FAILED;
+        }
+        clusterManager.markHealthy(peer);
+        synchronized (this) {
+            if (response.getTerm() > raftLog.getCurrentTerm()) {
+                stepDown(response.getTerm());
+                return ReplicateResult.DONE;
+            }
+            if (role != Role.LEADER || raftLog.getCurrentTerm() != requestTerm) {
+                return ReplicateResult.DONE;
+            }
+            // 对方在当前任期内响应，说明它仍认可本节点是Leader
+            ackSendTime.put(peer, Math.max(ackSendTime.get(peer), sendTime));
+            if (response.isSuccess()) {
+                long match = Math.max(matchIndex.get(peer), response.getMatchIndex());
+                matchIndex.put(peer, match);
+                nextIndex.put(peer, match + 1);
+                advanceCommitIndex();
+            } else {
+                nextIndex.put(peer, Math.max(1, Math.min(response.getConflictIndex(), prevLogIndex)));
+            }
+            notifyAll();
+            return nextIndex.get(peer) <= raftLog.lastIndex() ? ReplicateResult.MORE : ReplicateResult.DONE;
+        }
+    }
+
+    /**
+     * 当前任期的日志复制到多数节点即提交，调用方需持有锁
+     */
+    private void advanceCommitIndex() {
+        for (long index = raftLog.lastIndex(); index > commitIndex; index--) {
+            if (raftLog.termAt(index) != raftLog.getCurrentTerm()) {
+                break;
+            }
+            int replicated = 1;
+            for (long match : matchIndex.values()) {
+                if (match >= index) {
+                    replicated++;
+                }
+            }
+            if (replicated >= majority()) {
+                commitIndex = index;
+                notifyAll();
+                return;
+            }
+        }
+    }
+
+    // ==================== 状态机 ====================
+
+    /**
+     * 应用线程：按日志顺序把已提交的配置写入RegistryStore，并唤醒等待的发布请求
+     * 应用失败（如WAL写入失败）时不推进lastApplied，等待后重试同一条日志（应用是幂等的），
+     * 跳过已提交的日志会使本节点的状态与其他副本永久不一致
+     */
+    private void applyLoop() {
+        while (running) {
+            RaftLogEntry entry;
+            synchronized (this) {
+                while (running && lastApplied >= commitIndex) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                entry = raftLog.get(lastApplied + 1);
+            }
+
+            ConfigItem applied = null;
+            boolean failed = false;
+            applyLock.lock();
+            try {
+                synchronized (this) {
+                    // 等待应用锁期间安装了快照，该日志已包含在快照中
+                    if (entry.getIndex() != lastApplied + 1) {
+                        continue;
+                    }
+                }
+                if (RaftLogEntry.CONFIG_PUBLISH.equals(entry.getType())) {
+                    try {
+                        // 应用副本，日志中的条目保持原样，之后仍可能发送给其他节点
+                        applied = registryStore.publishConfig(copyConfig(entry.getConfig()), entry.getTimestamp());
+                    } catch (Exception e) {
+                        failed = true;
+                        System.err.println("⚠️ Raft日志应用失败，" + applyRetryInterval + "ms后重试: "
+                                + entry.getIndex() + " " + e.getMessage());
+                    }
+                }
+                if (!failed) {
+                    synchronized (this) {
+                        lastApplied = entry.getIndex();
+                        try {
+                            raftLog.saveApplied(lastApplied);
+                        } catch (IOException e) {
+                            System.err.println("Raft已应用索引持久化失败: " + e.getMessage());
+                        }
+                        compactIfNeeded();
+                        notifyAll();
+                    }
+                }
+            } finally {
+                applyLock.unlock();
+            }
+
+            if (failed) {
+                synchronized (this) {
+                    try {
+                        // 其他线程的notifyAll会提前唤醒，按截止时间等满重试间隔
+                        long deadline = System.currentTimeMillis() + applyRetryInterval;
+                        long remaining;
+                        while (running && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                            wait(remaining);
+                        }
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            Proposal proposal = proposals.get(entry.getIndex());
+            if (proposal == null) {
+                continue;
+            }
+            if (proposal.term != entry.getTerm()) {
+                proposal.future.completeExceptionally(new IllegalStateException("Leader已变更，配置未提交"));
+            } else {
+                proposal.future.complete(applied);
+            }
+        }
+    }
+
+    /**
+     * 已应用的日志超过阈值时压缩到lastApplied，调用方需持有锁
+     * 已应用的配置由WAL持久化，重启后不需要这些日志；WAL未启用时重启要从头应用，不能压缩
+     */
+    private void compactIfNeeded() {
+        if (!configWal.isEnabled() || lastApplied - raftLog.getSnapshotIndex() < snapshotThreshold) {
+            return;
+        }
+        try {
+            raftLog.compactTo(lastApplied);
+            System.out.println("🗜️ Raft日志已压缩到索引: " + lastApplied);
+        } catch (IOException e) {
+            System.err.println("Raft日志压缩失败: " + e.getMessage());
+        }
+    }
+
+    // ==================== 私有方法 ====================
+
+    private int majority() {
+        return (peers.size() + 1) / 2 + 1;
+    }
+
+    /**
+     * 自身加上在requestTime之后发出的请求得到响应的节点数
+     */
+    private int confirmedCount(long requestTime) {
+        int count = 1;
+        for (long sendTime : ackSendTime.values()) {
+            if (sendTime >= requestTime) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void waitUntil(long deadline) throws InterruptedException, TimeoutException {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || !running) {
+            throw new TimeoutException("等待Raft超时");
+        }
+        wait(remaining);
+    }
+
+    private <T> T post(String peer, String path, Object body, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(DistroProtocol.MEMBER_HEADER, selfAddress);
+        try {
+            return restTemplate.exchange("http://" + peer + "/api/v1/cluster/raft" + path, HttpMethod.POST,
+                    new HttpEntity<>(body, headers), responseType).getBody();
+        } catch (RestClientException e) {
+            return null;
+        }
+    }
+
+    private ConfigItem copyConfig(ConfigItem config) {
+        ConfigItem copy = new ConfigItem();
+        copy.setDataId(config.getDataId());
+        copy.setGroup(config.getGroup());
+        copy.setContent(config.getContent());
+        copy.setType(config.getType());
+        return copy;
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * 等待提交的配置发布，记录写入时的任期，应用时任期不同说明该位置已被新Leader的日志覆盖
+     */
+    private static class Proposal {
+        final long term;
+        final CompletableFuture<ConfigItem> future = new CompletableFuture<>();
+
+        Proposal(long term) {
+            this.term = term;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.juhao666.demo.cluster.raft;
+
+/**
+ * 投票请求（RequestVote RPC）
+ */
+public class VoteRequest {
+    private long term;           // 候选人的任期
+    private String candidateId;  // 候选人地址
+    private long lastLogIndex;   // 候选人最后一条日志的索引
+    private long lastLogTerm;    // 候选人最后一条日志的任期
+
+    public VoteRequest() {
+    }
+
+    public VoteRequest(long term, String candidateId, long lastLogIndex, long lastLogTerm) {
+        this.term = term;
+        this.candidateId = candidateId;
+        this.lastLogIndex = lastLogIndex;
+        this.lastLogTerm = lastLogTerm;
+    }
+
+    public long getTerm() { return term; }
+    public void setTerm(long term) { this.term = term; }
+
+    public String getCandidateId() { return candidateId; }
+    public void setCandidateId(String candidateId) { this.candidateId = candidateId; }
+
+    public long getLastLogIndex() { return lastLogIndex; }
+    public void setLastLogIndex(long lastLogIndex) { this.lastLogIndex = lastLogIndex; }
+
+    public long getLastLogTerm() { return lastLogTerm; }
+    public void setLastLogTerm(long lastLogTerm) { this.lastLogTerm = lastLogTerm; }
+}
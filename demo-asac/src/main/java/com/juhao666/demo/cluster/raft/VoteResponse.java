@@ -0,0 +1,23 @@
+package com.juhao666.demo.cluster.raft;
+
+/**
+ * 投票响应
+ */
+public class VoteResponse {
+    private long term;            // 投票节点的当前任期
+    private boolean voteGranted;  // 是否投票给候选人
+
+    public VoteResponse() {
+    }
+
+    public VoteResponse(long term, boolean voteGranted) {
+        this.term = term;
+        this.voteGranted = voteGranted;
+    }
+
+    public long getTerm() { return term; }
+    public void setTerm(long term) { this.term = term; }
+
+    public boolean isVoteGranted() { return voteGranted; }
+    public void setVoteGranted(boolean voteGranted) { this.voteGranted = voteGranted; }
+}
@@ -0,0 +1,144 @@
+package com.juhao666.demo.controller;
+
+import com.juhao666.demo.cluster.ClusterManager;
+import com.juhao666.demo.cluster.DistroProtocol;
+import com.juhao666.demo.cluster.DistroRecord;
+import com.juhao666.demo.cluster.raft.AppendRequest;
+import com.juhao666.demo.cluster.raft.AppendResponse;
+import com.juhao666.demo.cluster.raft.InstallSnapshotRequest;
+import com.juhao666.demo.cluster.raft.RaftNode;
+import com.juhao666.demo.cluster.raft.VoteRequest;
+import com.juhao666.demo.cluster.raft.VoteResponse;
+import com.juhao666.demo.model.Response;
+import com.juhao666.demo.model.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 集群内部接口 - 节点间数据同步、校验和全量加载，以及Raft的投票、日志复制和ReadIndex
+ */
+@RestController
+@RequestMapping("/api/v1/cluster")
+public class ClusterController {
+
+    @Autowired
+    ClusterManager clusterManager;
+
+    @Autowired
+    DistroProtocol distroProtocol;
+
+    @Autowired
+    RaftNode raftNode;
+
+    /**
+     * 接收其他节点复制过来的变更记录
+     */
+    @PostMapping("/sync")
+    public Result sync(@RequestHeader(DistroProtocol.MEMBER_HEADER) String source,
+                       @RequestBody List<DistroRecord> records) {
+        if (!clusterManager.isEnabled()) {
+            return Response.error("集群模式未启用");
+        }
+        try {
+            int applied = distroProtocol.applyRecords(source, records);
+            return Response.success("同步成功", applied);
+        } catch (Exception e) {
+            return Response.error("同步失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 校验其他节点负责的实例和配置，返回本节点缺失或不一致的部分
+     */
+    @PostMapping("/verify")
+    public Result verify(@RequestHeader(DistroProtocol.MEMBER_HEADER) String source,
+                         @RequestBody Map<String, Map<String, String>> checksums) {
+        if (!clusterManager.isEnabled()) {
+            return Response.error("集群模式未启用");
+        }
+        try {
+            return Response.success("校验完成", distroProtocol.handleVerify(source, checksums));
+        } catch (Exception e) {
+            return Response.error("校验失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取本节点的全量数据
+     */
+    @GetMapping("/snapshot")
+    public Result snapshot() {
+        try {
+            return Response.success("获取全量数据成功", distroProtocol.snapshot());
+        } catch (Exception e) {
+            return Response.error("获取全量数据失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取集群成员及健康状态
+     */
+    @GetMapping("/members")
+    public Result members() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("enabled", clusterManager.isEnabled());
+        data.put("self", clusterManager.getSelfAddress());
+        data.put("members", clusterManager.getMembers());
+        data.put("raft", raftNode.getStatus());
+        return Response.success("获取集群成员成功", data);
+    }
+
+    /**
+     * Raft投票请求（RPC直接返回响应对象，不包装Result）
+     */
+    @PostMapping("/raft/vote")
+    public ResponseEntity<VoteResponse> vote(@RequestBody VoteRequest request) throws Exception {
+        if (!raftNode.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(raftNode.handleVote(request));
+    }
+
+    /**
+     * Raft日志复制请求（含心跳）
+     */
+    @PostMapping("/raft/append")
+    public ResponseEntity<AppendResponse> append(@RequestBody AppendRequest request) throws Exception {
+        if (!raftNode.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(raftNode.handleAppend(request));
+    }
+
+    /**
+     * Raft快照安装请求：Follower需要的日志已被Leader压缩时发送
+     */
+    @PostMapping("/raft/install-snapshot")
+    public ResponseEntity<AppendResponse> installSnapshot(@RequestBody InstallSnapshotRequest request) throws Exception {
+        if (!raftNode.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(raftNode.handleInstallSnapshot(request));
+    }
+
+    /**
+     * 获取ReadIndex：只有Leader能处理，Follower据此等待本地应用后提供线性一致读
+     */
+    @GetMapping("/raft/read-index")
+    public Result readIndex() {
+        if (!raftNode.isEnabled()) {
+            return Response.error("Raft未启用");
+        }
+        try {
+            return Response.success("获取ReadIndex成功", raftNode.readIndex());
+        } catch (Exception e) {
+            return Response.error("获取ReadIndex失败: " + e.getMessage());
+        }
+    }
+}
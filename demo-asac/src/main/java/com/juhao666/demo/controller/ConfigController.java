@@ -1,20 +1,29 @@
 package com.juhao666.demo.controller;
 
-import com.juhao666.demo.RegistryCenterApplication;
+import com.juhao666.demo.cache.ResponseCache;
+import com.juhao666.demo.cluster.DistroProtocol;
+import com.juhao666.demo.cluster.raft.RaftNode;
+import com.juhao666.demo.listener.LongPollingConfigListener;
 import com.juhao666.demo.model.Result;
 import com.juhao666.demo.model.ConfigItem;
 import com.juhao666.demo.model.Response;
 import com.juhao666.demo.store.RegistryStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -22,12 +31,19 @@ public class ConfigController {
 
     @Autowired
     RegistryStore registryStore;
-    private String generateConfigKey(String dataId, String group) {
-        return dataId + ":" + group;
-    }
 
-    // 配置监听器
-    private static final Map<String, List<DeferredResult<Result>>> CONFIG_LISTENERS = new ConcurrentHashMap<>();
+    @Autowired
+    LongPollingConfigListener longPollingConfigListener;
+
+    @Autowired
+    ResponseCache responseCache;
+
+    @Autowired
+    DistroProtocol distroProtocol;
+
+    @Autowired
+    RaftNode raftNode;
+
     @GetMapping("/config/all")
     public Result getAllConfigs() {
         try {
@@ -40,31 +56,115 @@ public class ConfigController {
 
     /**
      * 获取配置接口
+     * 支持条件请求：ETag为配置MD5，客户端If-None-Match与当前MD5一致时返回304，不返回内容；
+     * 响应按配置缓存序列化后的字节（mmap模式下不缓存），缓存条目按该配置自身的版本号和MD5校验，其他配置的发布不会使其失效；
+     * Raft模式下consistent=true时先通过ReadIndex等待本节点追上Leader，再读本地状态（线性一致读）
      */
     @GetMapping("/config")
-    public Result getConfig(@RequestParam String dataId,
-                            @RequestParam(required = false, defaultValue = "DEFAULT_GROUP") String group) {
+    public ResponseEntity<byte[]> getConfig(@RequestParam String dataId,
+                                            @RequestParam(required = false, defaultValue = "DEFAULT_GROUP") String group,
+                                            @RequestParam(required = false, defaultValue = "false") boolean consistent,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            //String key = generateConfigKey(dataId, group);
+            if (consistent && raftNode.isEnabled()) {
+                raftNode.awaitConsistentRead();
+            }
+
+            // 先只读元数据，未变更时不需要读取内容和序列化
+            String key = dataId + ":" + group;
+            ConfigItem metadata = registryStore.getConfigMetadata(dataId, group);
+            if (metadata != null) {
+                String md5 = metadata.getMd5();
+                if (matchesETag(ifNoneMatch, md5)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(toETag(md5)).build();
+                }
+                byte[] body = responseCache.getConfig(key, metadata.getVersion(), md5);
+                if (body != null) {
+                    return jsonResponse(body, md5);
+                }
+            }
+
             ConfigItem config = registryStore.getConfig(dataId, group); //CONFIG_STORE.get(key);
 
             if (config == null) {
-                return Response.error("配置不存在");
+                responseCache.evictConfig(key);
+                return jsonResponse(responseCache.serialize(Response.error("配置不存在")), null);
             }
 
-            return Response.success("获取配置成功", config);
+            // 缓存条目的版本号和MD5取自生成它的配置本身，读取期间发生的变更不会使缓存内容与校验值不一致
+            byte[] body = responseCache.putConfig(key, config.getVersion(), config.getMd5(),
+                    Response.success("获取配置成功", config));
+            return jsonResponse(body, config.getMd5());
         } catch (Exception e) {
-            return Response.error("获取配置失败: " + e.getMessage());
+            return jsonResponse(responseCache.serialize(Response.error("获取配置失败: " + e.getMessage())), null);
+        }
+    }
+
+    private ResponseEntity<byte[]> jsonResponse(byte[] body, String md5) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (md5 != null) {
+            builder.eTag(toETag(md5));
+        }
+        return builder.body(body);
+    }
+
+    /**
+     * 获取配置原始内容接口
+     * 直接输出配置内容字节（mmap模式下从映射内存写出），不经过ConfigItem的JSON序列化；
+     * consistent=true时与获取配置接口相同，先等待ReadIndex
+     */
+    @GetMapping("/config/content")
+    public ResponseEntity<StreamingResponseBody> getConfigContent(@RequestParam String dataId,
+                                                                  @RequestParam(required = false, defaultValue = "DEFAULT_GROUP") String group,
+                                                                  @RequestParam(required = false, defaultValue = "false") boolean consistent,
+                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (consistent && raftNode.isEnabled()) {
+            try {
+                raftNode.awaitConsistentRead();
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+        }
+        String md5 = registryStore.getConfigMd5(dataId, group);
+        if (md5 != null && matchesETag(ifNoneMatch, md5)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(toETag(md5)).build();
+        }
+        ByteBuffer content = registryStore.getConfigContent(dataId, group);
+        if (content == null) {
+            return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok()
+                .eTag(toETag(md5))
+                .contentType(new MediaType("text", "plain", StandardCharsets.UTF_8))
+                .contentLength(content.remaining())
+                .body(out -> {
+                    WritableByteChannel channel = Channels.newChannel(out);
+                    while (content.hasRemaining()) {
+                        channel.write(content);
+                    }
+                });
     }
 
     /**
      * 发布配置接口
+     * Raft模式下由Leader写入日志，复制到多数节点并应用后才返回，Follower收到时转发给Leader；
+     * 否则集群模式下本节点落盘后即返回，再异步复制给其他节点
      */
     @PostMapping("/config")
-    public Result publishConfig(@RequestBody ConfigItem config) {
+    public Result publishConfig(@RequestBody ConfigItem config,
+                                @RequestHeader(value = DistroProtocol.FORWARDED_HEADER, required = false) String forwarded) {
         try {
+            if (raftNode.isEnabled()) {
+                if (raftNode.isLeader()) {
+                    return Response.success("配置发布成功", raftNode.publishConfig(config));
+                }
+                if (forwarded != null) {
+                    return Response.error("配置发布失败: 当前节点不是Leader");
+                }
+                return raftNode.forwardToLeader("/config", config);
+            }
             ConfigItem publishedConfig = registryStore.publishConfig(config);
+            distroProtocol.replicateConfig(publishedConfig);
             return Response.success("配置发布成功", publishedConfig);
         } catch (Exception e) {
             return Response.error("配置发布失败: " + e.getMessage());
@@ -73,40 +173,77 @@ public class ConfigController {
 
     /**
      * 配置监听接口（长轮询）
+     * 配置发布后由LongPollingConfigListener立即唤醒，否则在超时后返回
      */
-    //todo
     @GetMapping("/config/listener")
     public DeferredResult<Result> listenConfig(@RequestParam String dataId,
                                                @RequestParam(required = false, defaultValue = "DEFAULT_GROUP") String group,
                                                @RequestParam(required = false) String md5) {
-        System.out.printf("长轮询调用开始 dataId=%s, group=%s%n", dataId, group);
-        String key = generateConfigKey(dataId, group);
-        ConfigItem currentConfig = registryStore.getConfig(dataId, group); //CONFIG_STORE.get(key);
-        DeferredResult<Result> deferredResult = new DeferredResult<>(30000L);
-        deferredResult.onTimeout(() -> {
-            deferredResult.setResult(Response.success("监听超时"));
-        });
-
-        // 检查配置是否变更
-        if (currentConfig != null && md5 != null && !currentConfig.getMd5().equals(md5)) {
-            deferredResult.setResult(Response.success("配置已变更", currentConfig));
-        } else {
-            // 添加到监听列表
-            CONFIG_LISTENERS.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
-            CONFIG_LISTENERS.get(key).add(deferredResult);
-
-            // 设置完成回调
-            deferredResult.onCompletion(() -> {
-                List<DeferredResult<Result>> listeners = CONFIG_LISTENERS.get(key);
-                if (listeners != null) {
-                    listeners.remove(deferredResult);
-                }
-            });
+        return longPollingConfigListener.addWatcher(dataId, group, md5);
+    }
+
+    /**
+     * 批量配置监听接口（长轮询）
+     * 请求体每行一个 dataId:group:md5（客户端没有该配置时md5留空；发布时已拒绝含':'的dataId和group），
+     * 一个连接同时监听多个配置，只返回发生变更的 dataId:group 列表
+     */
+    @PostMapping("/config/listener/batch")
+    public DeferredResult<Result> listenConfigs(@RequestBody String listeningConfigs) {
+        Map<String, String> configs = parseListeningConfigs(listeningConfigs);
+        if (configs.isEmpty()) {
+            DeferredResult<Result> deferredResult = new DeferredResult<>();
+            deferredResult.setResult(Response.error("监听配置列表为空"));
+            return deferredResult;
         }
-        System.out.printf("长轮询调用结束 result=%s%n", deferredResult.getResult());
-        return deferredResult;
+        return longPollingConfigListener.addBatchWatcher(configs);
     }
 
+    private String toETag(String md5) {
+        return "\"" + md5 + "\"";
+    }
 
+    /**
+     * If-None-Match是否命中当前MD5：支持 *、逗号分隔的多个ETag以及弱校验前缀 W/
+     */
+    private boolean matchesETag(String ifNoneMatch, String md5) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.equals(md5)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析批量监听请求：dataId:group:md5 -> {dataId:group = md5}
+     */
+    private Map<String, String> parseListeningConfigs(String listeningConfigs) {
+        Map<String, String> configs = new LinkedHashMap<>();
+        if (listeningConfigs == null) {
+            return configs;
+        }
+        for (String line : listeningConfigs.split("\n")) {
+            String trimmed = line.trim();
+            int md5Separator = trimmed.lastIndexOf(':');
+            if (md5Separator <= 0 || trimmed.lastIndexOf(':', md5Separator - 1) <= 0) {
+                continue;
+            }
+            configs.put(trimmed.substring(0, md5Separator), trimmed.substring(md5Separator + 1));
+        }
+        return configs;
+    }
 
 }
@@ -1,12 +1,22 @@
 package com.juhao666.demo.controller;
 
+import com.juhao666.demo.cache.ResponseCache;
+import com.juhao666.demo.cluster.DistroProtocol;
+import com.juhao666.demo.listener.ServiceSubscriptionListener;
 import com.juhao666.demo.model.Result;
 import com.juhao666.demo.model.Response;
+import com.juhao666.demo.model.ServiceDelta;
 import com.juhao666.demo.model.ServiceInstance;
+import com.juhao666.demo.store.InstanceSnapshot;
 import com.juhao666.demo.store.RegistryStore;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -24,13 +34,33 @@ public class RegistryController {
 
     @Autowired
     RegistryStore registryStore;
-    // 健康检查阈值（30秒）
-    private static final long HEALTH_CHECK_THRESHOLD = 30000;
 
+    @Autowired
+    ResponseCache responseCache;
+
+    @Autowired
+    ServiceSubscriptionListener serviceSubscriptionListener;
+
+    @Autowired
+    DistroProtocol distroProtocol;
+
+    /**
+     * 服务注册接口
+     * 集群模式下由负责该实例的节点处理，本节点不负责时转发过去
+     */
     @PostMapping("/instance/register")
-    public Result registerInstance(@RequestBody @Valid ServiceInstance instance) {
+    public Result registerInstance(@RequestBody @Valid ServiceInstance instance,
+                                   @RequestHeader(value = DistroProtocol.FORWARDED_HEADER, required = false) String forwarded) {
         try {
+            String instanceId = registryStore.generateInstanceId(instance);
+            if (distroProtocol.shouldForward(instanceId, forwarded)) {
+                Result result = distroProtocol.forward(instanceId, HttpMethod.POST, "/instance/register", instance);
+                if (result != null) {
+                    return result;
+                }
+            }
             ServiceInstance registeredInstance = registryStore.registerInstance(instance);
+            distroProtocol.replicateRegister(registeredInstance);
             return Response.success("服务注册成功", registeredInstance);
         } catch (Exception e) {
             return Response.error("服务注册失败: " + e.getMessage());
@@ -41,10 +71,19 @@ public class RegistryController {
      * 服务注销接口
      */
     @PostMapping("/instance/deregister")
-    public Result deregisterInstance(@RequestParam String serviceName, @RequestParam String instanceId) {
+    public Result deregisterInstance(@RequestParam String serviceName, @RequestParam String instanceId,
+                                     @RequestHeader(value = DistroProtocol.FORWARDED_HEADER, required = false) String forwarded) {
         try {
+             if (distroProtocol.shouldForward(instanceId, forwarded)) {
+                 Result result = distroProtocol.forward(instanceId, HttpMethod.POST,
+                         instancePath("/instance/deregister", serviceName, instanceId), null);
+                 if (result != null) {
+                     return result;
+                 }
+             }
              boolean success = registryStore.deregisterInstance(serviceName,instanceId);
              if (success) {
+                 distroProtocol.replicateDeregister(serviceName, instanceId);
                  return Response.success("服务注销成功");
              }
              return Response.error("服务注销失败");
@@ -54,52 +93,137 @@ public class RegistryController {
     }
 
     /**
-     * 心跳上报接口
+     * 心跳上报接口（携带完整实例信息，实例未注册时自动注册）
      */
     @PostMapping("/instance/heartbeat")
-    public Result heartbeat(@RequestBody @Valid ServiceInstance instance) {
+    public Result heartbeat(@RequestBody @Valid ServiceInstance instance,
+                            @RequestHeader(value = DistroProtocol.FORWARDED_HEADER, required = false) String forwarded) {
 
         try {
-            registryStore.updateHeartbeat(instance);
-            System.out.printf("心跳上报成功. Service Name = %s, Instance Id = %s%n", instance.getServiceName(), instance.getInstanceId());
+            String instanceId = registryStore.generateInstanceId(instance);
+            if (distroProtocol.shouldForward(instanceId, forwarded)) {
+                Result result = distroProtocol.forward(instanceId, HttpMethod.POST, "/instance/heartbeat", instance);
+                if (result != null) {
+                    return result;
+                }
+            }
+            // 心跳本身不复制，副本由负责节点的定期校验续约；只有重新注册时才复制
+            distroProtocol.replicateRegister(registryStore.updateHeartbeat(instance));
             return Response.success("心跳上报成功", System.currentTimeMillis());
         } catch (Exception e) {
             return Response.error("心跳上报失败: " + e.getMessage());
         }
     }
 
-    private boolean isInstanceHealthy(ServiceInstance instance) {
-        Long lastHeartbeat = registryStore.getHeartbeatTime(instance.getInstanceId());
-        if (lastHeartbeat == null) {
-            return false;
+    /**
+     * 轻量心跳接口 - 只按实例ID刷新心跳时间，无请求体
+     * 实例未注册时返回失败，客户端需重新注册
+     */
+    @PutMapping("/instance/beat")
+    public Result beat(@RequestParam String serviceName, @RequestParam String instanceId,
+                       @RequestHeader(value = DistroProtocol.FORWARDED_HEADER, required = false) String forwarded) {
+        if (distroProtocol.shouldForward(instanceId, forwarded)) {
+            Result result = distroProtocol.forward(instanceId, HttpMethod.PUT,
+                    instancePath("/instance/beat", serviceName, instanceId), null);
+            if (result != null) {
+                return result;
+            }
+        }
+        if (registryStore.heartbeat(instanceId)) {
+            return Response.success("心跳上报成功", System.currentTimeMillis());
         }
-        return (System.currentTimeMillis() - lastHeartbeat) < HEALTH_CHECK_THRESHOLD;
+        return Response.error("实例未注册: " + serviceName + " [" + instanceId + "]");
+    }
+
+    private String instancePath(String path, String serviceName, String instanceId) {
+        return UriComponentsBuilder.fromPath(path)
+                .queryParam("serviceName", serviceName)
+                .queryParam("instanceId", instanceId)
+                .toUriString();
+    }
+
+    private boolean isInstanceHealthy(ServiceInstance instance) {
+        return registryStore.isInstanceHealthy(instance);
     }
     /**
      * 服务发现接口
+     * 响应按服务缓存序列化后的字节：实例快照版本未变且没有实例心跳超时时直接返回缓存
      */
     @GetMapping("/instance/list")
-    public Result discoverServices(@RequestParam String serviceName) {
+    public ResponseEntity<byte[]> discoverServices(@RequestParam String serviceName) {
         try {
-            List<ServiceInstance> allInstances = registryStore.getInstances(serviceName);
+            long now = System.currentTimeMillis();
+            InstanceSnapshot snapshot = registryStore.getSnapshot(serviceName);
+            byte[] body = responseCache.getInstanceList(serviceName, snapshot.getVersion(), now);
+            if (body != null) {
+                return jsonResponse(body);
+            }
+            if (snapshot.isEmpty()) {
+                // 服务已消失，清理变为空之前并发写入的缓存条目
+                responseCache.evictInstanceList(serviceName);
+            }
 
-            // 过滤掉不健康的实例
-            List<ServiceInstance> healthyInstances = allInstances.stream()
-                    .filter(instance -> isInstanceHealthy(instance))
-                    .collect(Collectors.toList());
+            // 过滤掉不健康的实例，同时计算缓存有效期：最早一个实例心跳超时的时间
+            // 存在不健康实例时不缓存，避免它恢复心跳后仍被缓存排除在外
+            List<ServiceInstance> healthyInstances = new ArrayList<>(snapshot.size());
+            long validUntil = snapshot.isEmpty() ? now : Long.MAX_VALUE;
+            for (ServiceInstance instance : snapshot.getInstances()) {
+                if (isInstanceHealthy(instance)) {
+                    healthyInstances.add(instance);
+                    validUntil = Math.min(validUntil, instance.getLastHeartbeatTime() + registryStore.getHeartbeatTimeout());
+                } else {
+                    validUntil = now;
+                }
+            }
 
             Map<String, Object> data = new HashMap<>();
             data.put("serviceName", serviceName);
+            data.put("revision", snapshot.getVersion());
             data.put("instances", healthyInstances);
             data.put("total", healthyInstances.size());
-            data.put("timestamp", System.currentTimeMillis());
+            data.put("timestamp", now);
 
-            return Response.success("服务发现成功", data);
+            Result result = Response.success("服务发现成功", data);
+            return jsonResponse(responseCache.putInstanceList(serviceName, snapshot.getVersion(), validUntil, result));
         } catch (Exception e) {
-            return Response.error("服务发现失败: " + e.getMessage());
+            return jsonResponse(responseCache.serialize(Response.error("服务发现失败: " + e.getMessage())));
         }
     }
 
+    /**
+     * 增量服务发现接口
+     * 返回自revision以来新增、变更和移除的实例；revision过旧时返回全量，客户端按返回的revision继续请求
+     * 与 /instance/list 一样只返回健康实例，心跳超时的实例作为移除返回
+     */
+    @GetMapping("/instance/delta")
+    public Result discoverServiceDelta(@RequestParam String serviceName,
+                                       @RequestParam(required = false, defaultValue = "0") long revision) {
+        try {
+            ServiceDelta delta = registryStore.getDelta(serviceName, revision);
+            return Response.success("获取服务增量成功", delta);
+        } catch (Exception e) {
+            return Response.error("获取服务增量失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 服务订阅接口（长轮询）
+     * 请求体为 {serviceName: 已知版本号}，任一服务实例变化时立即返回这些服务的增量，否则在超时后返回空列表
+     */
+    @PostMapping("/instance/subscribe")
+    public DeferredResult<Result> subscribe(@RequestBody Map<String, Long> subscriptions) {
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            DeferredResult<Result> deferredResult = new DeferredResult<>();
+            deferredResult.setResult(Response.error("订阅服务列表为空"));
+            return deferredResult;
+        }
+        return serviceSubscriptionListener.subscribe(subscriptions);
+    }
+
+    private ResponseEntity<byte[]> jsonResponse(byte[] body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     /**
      * 获取所有服务
      */
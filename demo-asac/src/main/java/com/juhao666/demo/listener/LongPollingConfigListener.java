@@ -0,0 +1,246 @@
+package com.juhao666.demo.listener;
+
+import com.juhao666.demo.model.ConfigItem;
+import com.juhao666.demo.model.Response;
+import com.juhao666.demo.model.Result;
+import com.juhao666.demo.store.RegistryStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 长轮询配置变更分发引擎
+ * 客户端的长轮询请求以DeferredResult的形式挂起在 dataId:group 上，
+ * 配置发布提交后由分发线程立即唤醒该key上的所有等待者（不占用发布线程）
+ */
+@Component
+public class LongPollingConfigListener implements ConfigListener {
+
+    @Autowired
+    private RegistryStore registryStore;
+
+    // 长轮询超时时间
+    @Value("${custom.registry.config.long-poll-timeout:30000}")
+    private long longPollTimeout;
+
+    // 挂起的长轮询请求：dataId:group -> 等待中的监听者（批量监听者会同时挂在多个key上）
+    private final Map<String, Queue<Watcher>> watchers = new ConcurrentHashMap<>();
+
+    // 分发线程池 - 在发布线程之外完成DeferredResult
+    private final AtomicInteger dispatchThreadIndex = new AtomicInteger(1);
+    private final ExecutorService dispatchExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "Config-Dispatch-Thread-" + dispatchThreadIndex.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        registryStore.addConfigListener(this);
+        System.out.println("✅ 长轮询配置分发引擎已启动，超时时间: " + longPollTimeout + "ms");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        dispatchExecutor.shutdown();
+        try {
+            if (!dispatchExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                dispatchExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            dispatchExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("🛑 长轮询配置分发引擎已停止");
+    }
+
+    /**
+     * 挂起一个长轮询请求
+     * 客户端MD5与当前配置不一致时立即返回，否则等待配置变更或超时
+     */
+    public DeferredResult<Result> addWatcher(String dataId, String group, String md5) {
+        String key = dataId + ":" + group;
+        DeferredResult<Result> deferredResult = new DeferredResult<>(longPollTimeout);
+        deferredResult.onTimeout(() -> deferredResult.setResult(Response.success("监听超时")));
+
+        ConfigItem currentConfig = registryStore.getConfig(dataId, group);
+        if (isChanged(currentConfig, md5)) {
+            deferredResult.setResult(Response.success("配置已变更", currentConfig));
+            return deferredResult;
+        }
+
+        Watcher watcher = new SingleKeyWatcher(deferredResult);
+        park(watcher, Collections.singletonList(key));
+
+        // 二次检查：挂起前刚好提交的发布可能已经分发完毕，避免错过这次变更
+        currentConfig = registryStore.getConfig(dataId, group);
+        if (isChanged(currentConfig, md5)) {
+            watcher.notifyChanged(key, currentConfig);
+        }
+        return deferredResult;
+    }
+
+    /**
+     * 挂起一个批量长轮询请求
+     * listeningConfigs: dataId:group -> 客户端MD5（空串表示客户端本地没有该配置）
+     * 只返回发生变更的 dataId:group 列表，客户端再按需拉取变更的配置
+     */
+    public DeferredResult<Result> addBatchWatcher(Map<String, String> listeningConfigs) {
+        DeferredResult<Result> deferredResult = new DeferredResult<>(longPollTimeout);
+        deferredResult.onTimeout(() -> deferredResult.setResult(
+                Response.success("监听超时", Collections.emptyList())));
+
+        List<String> changedKeys = findChangedKeys(listeningConfigs);
+        if (!changedKeys.isEmpty()) {
+            deferredResult.setResult(Response.success("配置已变更", changedKeys));
+            return deferredResult;
+        }
+
+        Watcher watcher = new BatchWatcher(deferredResult);
+        park(watcher, listeningConfigs.keySet());
+
+        // 二次检查，同单key监听
+        changedKeys = findChangedKeys(listeningConfigs);
+        if (!changedKeys.isEmpty()) {
+            deferredResult.setResult(Response.success("配置已变更", changedKeys));
+        }
+        return deferredResult;
+    }
+
+    /**
+     * 配置发布/删除提交后回调，交由分发线程唤醒等待者
+     */
+    @Override
+    public void onConfigChanged(String key, ConfigItem newConfig) {
+        if (!watchers.containsKey(key)) {
+            return;
+        }
+        dispatchExecutor.execute(() -> dispatch(key, newConfig));
+    }
+
+    /**
+     * 获取当前挂起的长轮询请求数（批量请求按监听的key计数）
+     */
+    public int getWatcherCount() {
+        int count = 0;
+        for (Queue<Watcher> queue : watchers.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    private void park(Watcher watcher, Collection<String> keys) {
+        List<Queue<Watcher>> queues = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Queue<Watcher> queue = watchers.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>());
+            queue.offer(watcher);
+            queues.add(queue);
+        }
+        // 完成（变更/超时/断开）后从所有key的等待队列中移除
+        watcher.deferredResult.onCompletion(() -> {
+            for (Queue<Watcher> queue : queues) {
+                queue.remove(watcher);
+            }
+        });
+    }
+
+    private void dispatch(String key, ConfigItem config) {
+        Queue<Watcher> queue = watchers.get(key);
+        if (queue == null) {
+            return;
+        }
+
+        int notified = 0;
+        Watcher watcher;
+        while ((watcher = queue.poll()) != null) {
+            if (watcher.notifyChanged(key, config)) {
+                notified++;
+            }
+        }
+        if (notified > 0) {
+            System.out.println("📣 配置变更已推送: " + key + ", 唤醒长轮询数: " + notified);
+        }
+    }
+
+    private List<String> findChangedKeys(Map<String, String> listeningConfigs) {
+        List<String> changedKeys = new ArrayList<>();
+        for (Map.Entry<String, String> entry : listeningConfigs.entrySet()) {
+            String key = entry.getKey();
+            int separator = key.lastIndexOf(':');
+            String currentMd5 = registryStore.getConfigMd5(key.substring(0, separator), key.substring(separator + 1));
+            if (currentMd5 == null) {
+                currentMd5 = "";
+            }
+            if (!currentMd5.equals(entry.getValue())) {
+                changedKeys.add(key);
+            }
+        }
+        return changedKeys;
+    }
+
+    private boolean isChanged(ConfigItem currentConfig, String md5) {
+        return currentConfig != null && md5 != null && !currentConfig.getMd5().equals(md5);
+    }
+
+    /**
+     * 挂起的长轮询请求
+     */
+    private abstract static class Watcher {
+        final DeferredResult<Result> deferredResult;
+
+        Watcher(DeferredResult<Result> deferredResult) {
+            this.deferredResult = deferredResult;
+        }
+
+        /**
+         * 通知配置变更，返回是否由本次通知完成了请求
+         */
+        abstract boolean notifyChanged(String key, ConfigItem config);
+    }
+
+    /**
+     * 单key监听：返回变更后的完整配置
+     */
+    private static class SingleKeyWatcher extends Watcher {
+        SingleKeyWatcher(DeferredResult<Result> deferredResult) {
+            super(deferredResult);
+        }
+
+        @Override
+        boolean notifyChanged(String key, ConfigItem config) {
+            return deferredResult.setResult(config != null
+                    ? Response.success("配置已变更", config)
+                    : Response.success("配置已删除"));
+        }
+    }
+
+    /**
+     * 批量监听：只返回发生变更的key
+     */
+    private static class BatchWatcher extends Watcher {
+        BatchWatcher(DeferredResult<Result> deferredResult) {
+            super(deferredResult);
+        }
+
+        @Override
+        boolean notifyChanged(String key, ConfigItem config) {
+            return deferredResult.setResult(Response.success("配置已变更", Collections.singletonList(key)));
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.juhao666.demo.listener;
+
+// 服务实例变更监听器接口：实例注册、变更、注销（含心跳超时剔除）提交后回调
+public interface ServiceChangeListener {
+    void onServiceChanged(String serviceName, long revision);
+}
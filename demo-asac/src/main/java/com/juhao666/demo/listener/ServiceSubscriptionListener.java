@@ -0,0 +1,189 @@
+package com.juhao666.demo.listener;
+
+import com.juhao666.demo.model.Response;
+import com.juhao666.demo.model.Result;
+import com.juhao666.demo.model.ServiceDelta;
+import com.juhao666.demo.store.RegistryStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 服务订阅推送引擎（长轮询）
+ * 客户端带上各服务已知的版本号挂起请求，RegistryStore中实例发生变更后由分发线程立即唤醒，
+ * 返回发生变化的服务的增量；没有变化时在超时后返回空列表，客户端随即发起下一轮订阅
+ */
+@Component
+public class ServiceSubscriptionListener implements ServiceChangeListener {
+
+    @Autowired
+    private RegistryStore registryStore;
+
+    // 订阅长轮询超时时间
+    @Value("${custom.registry.subscription.long-poll-timeout:30000}")
+    private long longPollTimeout;
+
+    // 挂起的订阅请求：serviceName -> 等待中的订阅者（订阅多个服务的请求会同时挂在多个服务上）
+    private final Map<String, Queue<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    // 分发线程池 - 在注册/注销线程之外计算增量并完成DeferredResult
+    private final AtomicInteger dispatchThreadIndex = new AtomicInteger(1);
+    private final ExecutorService dispatchExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "Service-Dispatch-Thread-" + dispatchThreadIndex.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        registryStore.addServiceChangeListener(this);
+        System.out.println("✅ 服务订阅推送引擎已启动，超时时间: " + longPollTimeout + "ms");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        dispatchExecutor.shutdown();
+        try {
+            if (!dispatchExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                dispatchExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            dispatchExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("🛑 服务订阅推送引擎已停止");
+    }
+
+    /**
+     * 挂起一个订阅请求
+     * subscriptions: serviceName -> 客户端已知的版本号（0表示没有本地数据，-1表示本地数据来自其他节点、需要全量）
+     * 任一服务已有变化时立即返回，否则等待实例变更或超时
+     */
+    public DeferredResult<Result> subscribe(Map<String, Long> subscriptions) {
+        DeferredResult<Result> deferredResult = new DeferredResult<>(longPollTimeout);
+        deferredResult.onTimeout(() -> deferredResult.setResult(
+                Response.success("订阅超时", Collections.emptyList())));
+
+        List<ServiceDelta> deltas = findChanges(subscriptions);
+        if (!deltas.isEmpty()) {
+            deferredResult.setResult(Response.success("服务实例已变更", deltas));
+            return deferredResult;
+        }
+
+        Subscriber subscriber = new Subscriber(deferredResult, subscriptions);
+        park(subscriber);
+
+        // 二次检查：挂起前刚好提交的变更可能已经分发完毕，避免错过这次变更
+        deltas = findChanges(subscriptions);
+        if (!deltas.isEmpty()) {
+            deferredResult.setResult(Response.success("服务实例已变更", deltas));
+        }
+        return deferredResult;
+    }
+
+    /**
+     * 实例变更提交后回调，交由分发线程唤醒订阅者
+     */
+    @Override
+    public void onServiceChanged(String serviceName, long revision) {
+        if (!subscribers.containsKey(serviceName)) {
+            return;
+        }
+        dispatchExecutor.execute(() -> dispatch(serviceName));
+    }
+
+    /**
+     * 获取当前挂起的订阅请求数（订阅多个服务的请求按服务计数）
+     */
+    public int getSubscriberCount() {
+        int count = 0;
+        for (Queue<Subscriber> queue : subscribers.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    private void park(Subscriber subscriber) {
+        List<Queue<Subscriber>> queues = new ArrayList<>(subscriber.subscriptions.size());
+        for (String serviceName : subscriber.subscriptions.keySet()) {
+            Queue<Subscriber> queue = subscribers.computeIfAbsent(serviceName, k -> new ConcurrentLinkedQueue<>());
+            queue.offer(subscriber);
+            queues.add(queue);
+        }
+        // 完成（变更/超时/断开）后从所有服务的等待队列中移除
+        subscriber.deferredResult.onCompletion(() -> {
+            for (Queue<Subscriber> queue : queues) {
+                queue.remove(subscriber);
+            }
+        });
+    }
+
+    private void dispatch(String serviceName) {
+        Queue<Subscriber> queue = subscribers.get(serviceName);
+        if (queue == null) {
+            return;
+        }
+
+        int notified = 0;
+        List<Subscriber> unchanged = new ArrayList<>();
+        Subscriber subscriber;
+        while ((subscriber = queue.poll()) != null) {
+            // 一次返回该订阅者所有发生变化的服务，而不只是触发本次分发的服务
+            List<ServiceDelta> deltas = findChanges(subscriber.subscriptions);
+            if (deltas.isEmpty()) {
+                // 订阅者已知的版本号已经覆盖本次变更，继续等待
+                unchanged.add(subscriber);
+            } else if (subscriber.deferredResult.setResult(Response.success("服务实例已变更", deltas))) {
+                notified++;
+            }
+        }
+        for (Subscriber waiting : unchanged) {
+            if (!waiting.deferredResult.isSetOrExpired()) {
+                queue.offer(waiting);
+            }
+        }
+        if (notified > 0) {
+            System.out.println("📣 服务变更已推送: " + serviceName + ", 唤醒订阅数: " + notified);
+        }
+    }
+
+    private List<ServiceDelta> findChanges(Map<String, Long> subscriptions) {
+        List<ServiceDelta> deltas = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : subscriptions.entrySet()) {
+            long revision = entry.getValue() != null ? entry.getValue() : 0;
+            ServiceDelta delta = registryStore.getDelta(entry.getKey(), revision);
+            if (delta.hasChanges()) {
+                deltas.add(delta);
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * 挂起的订阅请求
+     */
+    private static class Subscriber {
+        final DeferredResult<Result> deferredResult;
+        final Map<String, Long> subscriptions;
+
+        Subscriber(DeferredResult<Result> deferredResult, Map<String, Long> subscriptions) {
+            this.deferredResult = deferredResult;
+            this.subscriptions = subscriptions;
+        }
+    }
+}
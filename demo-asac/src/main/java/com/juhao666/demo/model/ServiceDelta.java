@@ -0,0 +1,56 @@
+package com.juhao666.demo.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 服务实例增量
+ * 客户端带上已知的版本号，只获取此后新增、变更和移除的实例；
+ * 版本号过旧（移除记录已被清理）时full为true，instances为完整实例列表。
+ * 客户端应先应用removed，再应用added和changed
+ */
+public class ServiceDelta {
+    private String serviceName;      // 服务名
+    private long revision;           // 当前版本号，客户端下次请求时带上
+    private boolean full;            // 是否为全量结果
+    private List<ServiceInstance> instances = new ArrayList<>(); // 全量实例（full为true时）
+    private List<ServiceInstance> added = new ArrayList<>();     // 新增实例
+    private List<ServiceInstance> changed = new ArrayList<>();   // 状态或元数据变化的实例
+    private List<String> removed = new ArrayList<>();            // 移除的实例ID
+
+    public ServiceDelta() {
+    }
+
+    public ServiceDelta(String serviceName, long revision) {
+        this.serviceName = serviceName;
+        this.revision = revision;
+    }
+
+    /**
+     * 是否有任何变化
+     */
+    public boolean hasChanges() {
+        return full || !added.isEmpty() || !changed.isEmpty() || !removed.isEmpty();
+    }
+
+    public String getServiceName() { return serviceName; }
+    public void setServiceName(String serviceName) { this.serviceName = serviceName; }
+
+    public long getRevision() { return revision; }
+    public void setRevision(long revision) { this.revision = revision; }
+
+    public boolean isFull() { return full; }
+    public void setFull(boolean full) { this.full = full; }
+
+    public List<ServiceInstance> getInstances() { return instances; }
+    public void setInstances(List<ServiceInstance> instances) { this.instances = instances; }
+
+    public List<ServiceInstance> getAdded() { return added; }
+    public void setAdded(List<ServiceInstance> added) { this.added = added; }
+
+    public List<ServiceInstance> getChanged() { return changed; }
+    public void setChanged(List<ServiceInstance> changed) { this.changed = changed; }
+
+    public List<String> getRemoved() { return removed; }
+    public void setRemoved(List<String> removed) { this.removed = removed; }
+}
@@ -20,7 +20,9 @@ public class ServiceInstance {
     private String status;           // 状态：UP, DOWN
     private Map<String, String> metadata; // 元数据
     private long registrationTime;   // 注册时间
-    private long lastHeartbeatTime;  // 最后心跳时间
+    private volatile long lastHeartbeatTime;  // 最后心跳时间（心跳时间槽，由心跳线程原地更新）
+    private long createRevision;     // 注册时的注册表版本号
+    private long modRevision;        // 最后一次变更（注册、状态或元数据变化）时的注册表版本号
 
     public ServiceInstance() {
         this.metadata = new HashMap<>();
@@ -49,4 +51,10 @@ public class ServiceInstance {
 
     public long getLastHeartbeatTime() { return lastHeartbeatTime; }
     public void setLastHeartbeatTime(long lastHeartbeatTime) { this.lastHeartbeatTime = lastHeartbeatTime; }
+
+    public long getCreateRevision() { return createRevision; }
+    public void setCreateRevision(long createRevision) { this.createRevision = createRevision; }
+
+    public long getModRevision() { return modRevision; }
+    public void setModRevision(long modRevision) { this.modRevision = modRevision; }
 }
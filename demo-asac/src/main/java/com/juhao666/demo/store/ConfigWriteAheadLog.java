@@ -0,0 +1,544 @@
+package com.juhao666.demo.store;
+
+import com.juhao666.demo.model.ConfigItem;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 配置预写日志（WAL）
+ * 配置的发布/删除先追加到日志文件再确认，注册中心重启时回放日志恢复配置。
+ * 追加由单独的写线程批量完成：一批记录只做一次写入和一次fsync（组提交），
+ * 并发发布越多，单次fsync分摊到每个发布上的开销越小。
+ *
+ * 记录格式：[int 长度][int CRC32][payload]，回放时遇到不完整或校验失败的记录即截断。
+ * 一批记录写入或fsync失败时截断回这批记录之前的位置，之后的记录不会写在损坏的数据之后；
+ * 截断也失败时停止接受写入，避免确认回放时无法读到的记录。
+ * 日志按段存储（config-<起始LSN>.wal），生成配置快照时切换到新段，
+ * 快照已覆盖的旧段直接删除，启动时只需加载快照并回放其后的日志。
+ */
+@Component
+public class ConfigWriteAheadLog {
+
+    public static final byte TYPE_PUBLISH = 1;
+    public static final byte TYPE_DELETE = 2;
+
+    private static final String SEGMENT_PREFIX = "config-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    @Value("${custom.registry.config.wal-enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${custom.registry.config.wal-dir:data/wal}")
+    private String walDir = "data/wal";
+
+    // 待写入的记录，由写线程批量取出
+    private final BlockingQueue<PendingWrite> pendingWrites = new LinkedBlockingQueue<>();
+
+    private Path dir;
+    // 当前写入段，只由写线程切换
+    private FileChannel channel;
+    private Thread writerThread;
+    private volatile boolean running;
+    // 写入失败且无法截断回有效位置，之后的追加全部失败
+    private volatile boolean broken;
+
+    // 日志序列号（LSN），每条记录递增
+    private long lastLsn;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            System.out.println("⚠️ 配置WAL未启用，配置仅保存在内存中");
+            return;
+        }
+        dir = Paths.get(walDir);
+        Files.createDirectories(dir);
+        System.out.println("✅ 配置WAL已启用: " + dir.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (!enabled || writerThread == null) {
+            return;
+        }
+        // 写线程会先把队列中剩余的记录写完再退出
+        synchronized (this) {
+            running = false;
+        }
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("关闭配置WAL失败: " + e.getMessage());
+        }
+        System.out.println("🛑 配置WAL已关闭");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 回放日志，按写入顺序把LSN大于fromLsn的记录交给handler，返回回放的记录数
+     * 必须在任何追加之前调用；回放完成后打开最后一段继续追加并启动写线程
+     *
+     * @param fromLsn 快照已覆盖到的LSN，没有快照时传0
+     */
+    public synchronized int replay(long fromLsn, Consumer<Record> handler) throws IOException {
+        if (!enabled) {
+            return 0;
+        }
+        lastLsn = Math.max(lastLsn, fromLsn);
+        int count = 0;
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            boolean lastSegment = i == segments.size() - 1;
+            FileChannel segment = FileChannel.open(segments.get(i), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                count += replaySegment(segment, fromLsn, handler);
+            } finally {
+                if (lastSegment) {
+                    channel = segment;
+                } else {
+                    segment.close();
+                }
+            }
+        }
+        if (channel == null) {
+            channel = openSegment(lastLsn + 1);
+        }
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "Config-WAL-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        return count;
+    }
+
+    /**
+     * 回放单个段，末尾不完整的记录（写入中途宕机）会被截断，position停在有效数据末尾
+     */
+    private int replaySegment(FileChannel segment, long fromLsn, Consumer<Record> handler) throws IOException {
+        long validPosition = 0;
+        long segmentSize = segment.size();
+        int count = 0;
+        segment.position(0);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new UncloseableChannelInputStream(segment)))) {
+            while (true) {
+                Record record;
+                int length;
+                try {
+                    length = in.readInt();
+                    int checksum = in.readInt();
+                    // 长度字段本身可能已损坏，超出文件剩余大小时视为不完整记录
+                    if (length <= 0 || length > segmentSize - validPosition - 8) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    if (checksum(payload) != checksum) {
+                        break;
+                    }
+                    record = decode(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                validPosition += 8 + length;
+                if (record.getLsn() <= fromLsn) {
+                    continue;
+                }
+                handler.accept(record);
+                lastLsn = record.getLsn();
+                count++;
+            }
+        }
+
+        if (validPosition < segment.size()) {
+            System.err.println("⚠️ 配置WAL末尾存在不完整记录，截断到位置: " + validPosition);
+            segment.truncate(validPosition);
+        }
+        segment.position(validPosition);
+        return count;
+    }
+
+    /**
+     * 切换到新的日志段，返回的Future在新段打开后完成，值为旧段覆盖到的最后一个LSN
+     * 完成时该LSN之前的记录都已落盘，其Future（及落盘回调）都已先于本Future完成
+     */
+    public synchronized CompletableFuture<Long> roll() {
+        if (!enabled || !running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("配置WAL未启用或已关闭"));
+        }
+        PendingWrite write = new PendingWrite(null, lastLsn);
+        pendingWrites.offer(write);
+        return write.future.thenApply(v -> write.lsn);
+    }
+
+    /**
+     * 删除已被快照完全覆盖的日志段（起始LSN不大于coveredLsn且不是当前写入段）
+     */
+    public void deleteSegmentsCoveredBy(long coveredLsn) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        for (Path segment : listSegments()) {
+            if (segmentStartLsn(segment) <= coveredLsn) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        segments.sort(Comparator.comparingLong(ConfigWriteAheadLog::segmentStartLsn));
+        return segments;
+    }
+
+    /**
+     * 创建并打开新段，fsync目录保证宕机后新段仍在目录中，否则其中已确认的记录会随文件一起丢失
+     */
+    private FileChannel openSegment(long startLsn) throws IOException {
+        Path segment = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, startLsn, SEGMENT_SUFFIX));
+        FileChannel opened = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            syncDirectory(dir);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    /**
+     * fsync目录，使其中文件的创建、重命名和删除落盘
+     * Windows不能打开目录，NTFS的元数据日志已保证这些操作的持久性
+     */
+    public static void syncDirectory(Path directory) throws IOException {
+        if (System.getProperty("os.name").toLowerCase().startsWith("windows")) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static long segmentStartLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * 追加发布记录，返回的Future在记录落盘（fsync）后完成
+     * 调用方需保证与内存状态变更的顺序一致（在配置写锁内调用）
+     */
+    public CompletableFuture<Void> appendPublish(ConfigItem config) {
+        return append(TYPE_PUBLISH, config);
+    }
+
+    /**
+     * 追加删除记录，返回的Future在记录落盘（fsync）后完成
+     */
+    public CompletableFuture<Void> appendDelete(String dataId, String group) {
+        ConfigItem config = new ConfigItem();
+        config.setDataId(dataId);
+        config.setGroup(group);
+        return append(TYPE_DELETE, config);
+    }
+
+    /**
+     * 获取最后一条记录的序列号
+     */
+    public synchronized long getLastLsn() {
+        return lastLsn;
+    }
+
+    private synchronized CompletableFuture<Void> append(byte type, ConfigItem config) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("配置WAL已关闭"));
+        }
+        if (broken) {
+            return CompletableFuture.failedFuture(new IllegalStateException("配置WAL写入失败且无法恢复，已停止写入"));
+        }
+        Record record = new Record(type, ++lastLsn, config);
+        PendingWrite write = new PendingWrite(encode(record), record.getLsn());
+        pendingWrites.offer(write);
+        return write.future;
+    }
+
+    /**
+     * 写线程：取出当前所有待写记录，一次写入、一次fsync；遇到切段标记时先落盘之前的记录再切换
+     */
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (running || !pendingWrites.isEmpty()) {
+            try {
+                PendingWrite first = pendingWrites.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pendingWrites.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                int start = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    PendingWrite write = batch.get(i);
+                    if (write.data == null) {
+                        flush(batch.subList(start, i));
+                        // 先打开新段再关闭旧段，打开失败时继续写旧段，WAL不会停在关闭状态
+                        FileChannel next = openSegment(write.lsn + 1);
+                        channel.close();
+                        channel = next;
+                        write.future.complete(null);
+                        start = i + 1;
+                    }
+                }
+                flush(batch.subList(start, batch.size()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failAll(batch, e);
+                break;
+            } catch (Exception e) {
+                System.err.println("配置WAL写入失败: " + e.getMessage());
+                failAll(batch, e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void flush(List<PendingWrite> writes) throws IOException {
+        if (writes.isEmpty()) {
+            return;
+        }
+        if (broken) {
+            throw new IOException("配置WAL写入失败且无法恢复，已停止写入");
+        }
+        ByteBuffer[] buffers = new ByteBuffer[writes.size()];
+        for (int i = 0; i < writes.size(); i++) {
+            buffers[i] = ByteBuffer.wrap(writes.get(i).data);
+        }
+        long batchStart = channel.position();
+        try {
+            while (buffers[buffers.length - 1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            discardFrom(batchStart);
+            throw e;
+        }
+
+        for (PendingWrite write : writes) {
+            write.future.complete(null);
+        }
+    }
+
+    /**
+     * 丢弃写入失败的批次：截断回批次开始的位置，后续记录从有效数据末尾继续追加，
+     * 否则回放会停在损坏的记录处，丢掉之后已确认的记录
+     */
+    private void discardFrom(long position) {
+        try {
+            channel.truncate(position);
+            channel.position(position);
+            channel.force(false);
+        } catch (IOException e) {
+            broken = true;
+            System.err.println("⚠️ 配置WAL无法截断回位置 " + position + "，停止接受写入: " + e.getMessage());
+        }
+    }
+
+    private void failAll(List<PendingWrite> batch, Exception e) {
+        for (PendingWrite write : batch) {
+            // 已完成的记录不受影响
+            write.future.completeExceptionally(e);
+        }
+    }
+
+    // ==================== 编解码 ====================
+
+    private byte[] encode(Record record) {
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(payloadBytes);
+            ConfigItem config = record.getConfig();
+            out.writeByte(record.getType());
+            out.writeLong(record.getLsn());
+            writeString(out, config.getDataId());
+            writeString(out, config.getGroup());
+            if (record.getType() == TYPE_PUBLISH) {
+                writeString(out, config.getContent());
+                writeString(out, config.getType());
+                out.writeLong(config.getVersion());
+                writeString(out, config.getMd5());
+                out.writeLong(config.getUpdateTime());
+            }
+            out.flush();
+            byte[] payload = payloadBytes.toByteArray();
+
+            ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(payload.length + 8);
+            DataOutputStream recordOut = new DataOutputStream(recordBytes);
+            recordOut.writeInt(payload.length);
+            recordOut.writeInt(checksum(payload));
+            recordOut.write(payload);
+            recordOut.flush();
+            return recordBytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("配置WAL记录编码失败", e);
+        }
+    }
+
+    private Record decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        long lsn = in.readLong();
+        ConfigItem config = new ConfigItem();
+        config.setDataId(readString(in));
+        config.setGroup(readString(in));
+        if (type == TYPE_PUBLISH) {
+            config.setContent(readString(in));
+            config.setType(readString(in));
+            config.setVersion(in.readLong());
+            config.setMd5(readString(in));
+            config.setUpdateTime(in.readLong());
+        }
+        return new Record(type, lsn, config);
+    }
+
+    /**
+     * 字符串编码为 [int 字节数][UTF-8]，null记为-1（writeUTF有64KB限制，不适合大配置）
+     */
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * WAL记录：删除记录的config只包含dataId和group
+     */
+    public static class Record {
+        private final byte type;
+        private final long lsn;
+        private final ConfigItem config;
+
+        Record(byte type, long lsn, ConfigItem config) {
+            this.type = type;
+            this.lsn = lsn;
+            this.config = config;
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public long getLsn() {
+            return lsn;
+        }
+
+        public ConfigItem getConfig() {
+            return config;
+        }
+    }
+
+    /**
+     * 待写记录；data为null表示切段标记，此时lsn为旧段覆盖到的最后一个LSN
+     */
+    private static class PendingWrite {
+        final byte[] data;
+        final long lsn;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingWrite(byte[] data, long lsn) {
+            this.data = data;
+            this.lsn = lsn;
+        }
+    }
+
+    /**
+     * 从FileChannel当前位置读取，关闭时不关闭底层channel
+     */
+    private static class UncloseableChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private final ByteBuffer single = ByteBuffer.allocate(1);
+
+        UncloseableChannelInputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            single.clear();
+            int n = channel.read(single);
+            return n <= 0 ? -1 : single.get(0) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return channel.read(ByteBuffer.wrap(b, off, len));
+        }
+    }
+}
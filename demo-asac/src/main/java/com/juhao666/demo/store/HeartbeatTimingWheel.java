@@ -0,0 +1,99 @@
+package com.juhao666.demo.store;
+
+import com.juhao666.demo.model.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ToLongFunction;
+
+/**
+ * 心跳过期时间轮 - 哈希时间轮
+ * 实例按预计过期时间挂到对应槽位上，每个tick只检查到期槽位内的实例：
+ * 已过期的返回给调用方注销，期间有过心跳的按最新心跳时间重新挂到新的槽位。
+ * 心跳路径不触碰时间轮（惰性续期），每个实例每个超时周期只被检查一次，
+ * 过期检查的开销与到期的实例数成正比，而不是与注册表大小成正比。
+ */
+public class HeartbeatTimingWheel {
+
+    private final long tickMillis;   // 每个槽位覆盖的时间跨度
+    private final int wheelSize;     // 槽位数量
+    private final AtomicReferenceArray<Queue<ServiceInstance>> buckets;
+
+    // 已处理到的tick，只由过期检查线程推进
+    private long currentTick = -1;
+
+    public HeartbeatTimingWheel(long tickMillis, int wheelSize) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.buckets = new AtomicReferenceArray<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.set(i, new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * 将实例挂到deadline所在的槽位 - 线程安全
+     * 超过一圈的deadline会被提前检查一次，并重新挂回去
+     */
+    public void schedule(ServiceInstance instance, long deadline) {
+        // 向上取整，保证槽位被处理时deadline已经到达
+        long deadlineTick = (deadline + tickMillis - 1) / tickMillis;
+        int index = bucketIndex(deadlineTick);
+        while (true) {
+            Queue<ServiceInstance> bucket = buckets.get(index);
+            bucket.offer(instance);
+            if (buckets.get(index) == bucket) {
+                return;
+            }
+            // 入队前后槽位被advance换出：换出的队列可能已处理完而被丢弃。
+            // 能从旧队列移除说明advance没有取到该实例，重新挂到新队列；移除失败说明advance已处理，不能重复挂入
+            if (!bucket.remove(instance)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 推进时间轮到now，返回已过期的实例 - 仅限单线程调用
+     *
+     * @param lastHeartbeat 获取实例最新心跳时间，实例已被注销或替换时返回-1（直接丢弃）
+     * @param timeoutMillis 心跳超时时间
+     */
+    public List<ServiceInstance> advance(long now, ToLongFunction<ServiceInstance> lastHeartbeat, long timeoutMillis) {
+        List<ServiceInstance> expired = new ArrayList<>();
+        long nowTick = now / tickMillis;
+        if (currentTick < 0 || nowTick - currentTick > wheelSize) {
+            // 首次推进或停顿超过一圈时，整圈检查一次即可
+            currentTick = nowTick - wheelSize;
+        }
+
+        while (currentTick < nowTick) {
+            currentTick++;
+            int index = bucketIndex(currentTick);
+            // 整体换出槽位，处理期间重新挂回同一槽位的实例进入新队列，避免重复处理
+            Queue<ServiceInstance> bucket = buckets.getAndSet(index, new ConcurrentLinkedQueue<>());
+
+            ServiceInstance instance;
+            while ((instance = bucket.poll()) != null) {
+                long heartbeatTime = lastHeartbeat.applyAsLong(instance);
+                if (heartbeatTime < 0) {
+                    continue;
+                }
+                long deadline = heartbeatTime + timeoutMillis;
+                if (deadline <= now) {
+                    expired.add(instance);
+                } else {
+                    schedule(instance, deadline);
+                }
+            }
+        }
+        return expired;
+    }
+
+    private int bucketIndex(long tick) {
+        return (int) Math.floorMod(tick, (long) wheelSize);
+    }
+}
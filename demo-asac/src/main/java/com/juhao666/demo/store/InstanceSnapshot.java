@@ -0,0 +1,153 @@
+package com.juhao666.demo.store;
+
+import com.juhao666.demo.model.ServiceDelta;
+import com.juhao666.demo.model.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 服务实例快照 - 不可变
+ * 写操作基于旧快照生成新快照并整体替换（Copy-On-Write），
+ * 读操作直接返回共享的只读列表，无需加锁也无需拷贝。
+ * 版本号由RegistryStore从全局计数器分配，服务被删除后重新注册版本号也不会回退，
+ * 可以直接作为响应缓存等的失效依据。
+ * 快照同时保留最近的实例移除记录（墓碑），用于计算增量
+ */
+public final class InstanceSnapshot {
+
+    // 每个服务最多保留的墓碑数，更早的移除只能通过全量结果感知
+    static final int MAX_TOMBSTONES = 256;
+
+    static final InstanceSnapshot EMPTY = new InstanceSnapshot(0, 0, Collections.emptyList(), Collections.emptyList());
+
+    private final long version;                   // 快照版本号，全局递增
+    private final long compactedRevision;         // 不大于该版本号的增量请求无法计算，只能返回全量
+    private final List<ServiceInstance> instances; // 只读实例列表
+    private final List<Tombstone> tombstones;      // 只读墓碑列表，按版本号递增
+
+    private InstanceSnapshot(long version, long compactedRevision,
+                             List<ServiceInstance> instances, List<Tombstone> tombstones) {
+        this.version = version;
+        this.compactedRevision = compactedRevision;
+        this.instances = instances;
+        this.tombstones = tombstones;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<ServiceInstance> getInstances() {
+        return instances;
+    }
+
+    public int size() {
+        return instances.size();
+    }
+
+    public boolean isEmpty() {
+        return instances.isEmpty();
+    }
+
+    /**
+     * 计算自sinceRevision以来的增量
+     */
+    public ServiceDelta delta(String serviceName, long sinceRevision) {
+        ServiceDelta delta = new ServiceDelta(serviceName, version);
+        if (sinceRevision >= version) {
+            return delta;
+        }
+        if (sinceRevision < compactedRevision) {
+            delta.setFull(true);
+            delta.setInstances(instances);
+            return delta;
+        }
+
+        Set<String> currentIds = new HashSet<>();
+        for (ServiceInstance instance : instances) {
+            currentIds.add(instance.getInstanceId());
+            if (instance.getCreateRevision() > sinceRevision) {
+                delta.getAdded().add(instance);
+            } else if (instance.getModRevision() > sinceRevision) {
+                delta.getChanged().add(instance);
+            }
+        }
+        for (Tombstone tombstone : tombstones) {
+            // 移除后又重新注册的实例会出现在added中，不再重复报告移除
+            if (tombstone.revision > sinceRevision && !currentIds.contains(tombstone.instanceId)) {
+                delta.getRemoved().add(tombstone.instanceId);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * 新增实例，返回新快照
+     * 基于空快照（服务首次注册或被删除后重新注册）时，之前的墓碑已经丢失，更早的版本号只能返回全量
+     */
+    InstanceSnapshot add(ServiceInstance instance, long newVersion) {
+        List<ServiceInstance> copy = new ArrayList<>(instances.size() + 1);
+        copy.addAll(instances);
+        copy.add(instance);
+        long compacted = this == EMPTY ? newVersion - 1 : compactedRevision;
+        return new InstanceSnapshot(newVersion, compacted, Collections.unmodifiableList(copy), tombstones);
+    }
+
+    /**
+     * 替换实例ID相同的实例，返回新快照
+     */
+    InstanceSnapshot replace(ServiceInstance instance, long newVersion) {
+        List<ServiceInstance> copy = new ArrayList<>(instances.size());
+        for (ServiceInstance existing : instances) {
+            copy.add(existing.getInstanceId().equals(instance.getInstanceId()) ? instance : existing);
+        }
+        return new InstanceSnapshot(newVersion, compactedRevision, Collections.unmodifiableList(copy), tombstones);
+    }
+
+    /**
+     * 移除实例并记录墓碑，返回新快照；实例不存在时返回当前快照
+     */
+    InstanceSnapshot remove(String instanceId, long newVersion) {
+        List<ServiceInstance> copy = new ArrayList<>(instances.size());
+        for (ServiceInstance existing : instances) {
+            if (!existing.getInstanceId().equals(instanceId)) {
+                copy.add(existing);
+            }
+        }
+        if (copy.size() == instances.size()) {
+            return this;
+        }
+
+        List<Tombstone> newTombstones = new ArrayList<>(Math.min(tombstones.size() + 1, MAX_TOMBSTONES));
+        long compacted = compactedRevision;
+        int skip = tombstones.size() + 1 - MAX_TOMBSTONES;
+        for (int i = 0; i < tombstones.size(); i++) {
+            if (i < skip) {
+                // 被清理的墓碑之前的版本号无法再计算增量
+                compacted = Math.max(compacted, tombstones.get(i).revision);
+            } else {
+                newTombstones.add(tombstones.get(i));
+            }
+        }
+        newTombstones.add(new Tombstone(instanceId, newVersion));
+        return new InstanceSnapshot(newVersion, compacted,
+                Collections.unmodifiableList(copy), Collections.unmodifiableList(newTombstones));
+    }
+
+    /**
+     * 实例移除记录
+     */
+    private static final class Tombstone {
+        final String instanceId;
+        final long revision;
+
+        Tombstone(String instanceId, long revision) {
+            this.instanceId = instanceId;
+            this.revision = revision;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.juhao666.demo.store;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 配置内容存储 - 内存映射文件
+ * storage-mode为mmap时，配置内容按MD5写入独立文件并以只读方式映射，
+ * 堆内只保留配置元数据，大配置（路由表、开关集合等）不再占用堆内存、不增加GC压力。
+ * 内容相同的配置共享同一个文件，按引用计数释放。
+ *
+ * 内容文件只是缓存，持久化仍由WAL和快照负责：启动时清空目录，回放时重新生成
+ */
+@Component
+public class MappedConfigContentStore {
+
+    private static final String CONTENT_SUFFIX = ".content";
+
+    @Value("${custom.registry.config.storage-mode:heap}")
+    private String storageMode = "heap";
+
+    @Value("${custom.registry.config.content-dir:data/content}")
+    private String contentDir = "data/content";
+
+    private Path dir;
+
+    // md5 -> 映射的内容
+    private final Map<String, MappedContent> contents = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        dir = Paths.get(contentDir);
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + CONTENT_SUFFIX)) {
+            for (Path file : stream) {
+                Files.deleteIfExists(file);
+            }
+        }
+        System.out.println("✅ 配置内容使用内存映射存储: " + dir.toAbsolutePath());
+    }
+
+    public boolean isEnabled() {
+        return "mmap".equalsIgnoreCase(storageMode);
+    }
+
+    /**
+     * 引用一份内容，不存在时写入文件并映射 - 调用方需持有配置写锁
+     */
+    public void retain(String md5, String content) {
+        MappedContent mapped = contents.get(md5);
+        if (mapped != null) {
+            mapped.refCount++;
+            return;
+        }
+        Path file = dir.resolve(md5 + CONTENT_SUFFIX);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 内容可由WAL恢复，这里只写入页缓存，不做fsync
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes.length);
+            contents.put(md5, new MappedContent(file, mapping));
+        } catch (IOException e) {
+            throw new UncheckedIOException("配置内容写入失败: " + md5, e);
+        }
+    }
+
+    /**
+     * 释放一份内容的引用，没有配置再引用时删除文件 - 调用方需持有配置写锁
+     * 已经取出的ByteBuffer在映射被GC回收前仍然可读
+     */
+    public void release(String md5) {
+        MappedContent mapped = contents.get(md5);
+        if (mapped == null || --mapped.refCount > 0) {
+            return;
+        }
+        contents.remove(md5);
+        try {
+            Files.deleteIfExists(mapped.file);
+        } catch (IOException e) {
+            System.err.println("删除配置内容文件失败: " + mapped.file + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取内容的只读视图，直接指向映射内存，不产生拷贝；内容不存在时返回null
+     */
+    public ByteBuffer getBuffer(String md5) {
+        MappedContent mapped = contents.get(md5);
+        return mapped != null ? mapped.mapping.asReadOnlyBuffer() : null;
+    }
+
+    /**
+     * 读取内容为字符串（会在堆上生成一份拷贝，只用于兼容需要完整ConfigItem的接口）
+     */
+    public String getString(String md5) {
+        ByteBuffer buffer = getBuffer(md5);
+        return buffer != null ? StandardCharsets.UTF_8.decode(buffer).toString() : null;
+    }
+
+    public int size() {
+        return contents.size();
+    }
+
+    private static class MappedContent {
+        final Path file;
+        final MappedByteBuffer mapping;
+        int refCount = 1;   // 只在配置写锁内修改
+
+        MappedContent(Path file, MappedByteBuffer mapping) {
+            this.file = file;
+            this.mapping = mapping;
+        }
+    }
+}
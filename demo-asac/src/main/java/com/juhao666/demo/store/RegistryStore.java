@@ -1,19 +1,33 @@
 package com.juhao666.demo.store;
 
 import com.juhao666.demo.listener.ConfigListener;
+import com.juhao666.demo.listener.ServiceChangeListener;
 import com.juhao666.demo.model.ConfigItem;
+import com.juhao666.demo.model.ServiceDelta;
 import com.juhao666.demo.model.ServiceInstance;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.StampedLock;
 import java.util.stream.Collectors;
@@ -27,34 +41,95 @@ public class RegistryStore {
 
     // 核心存储数据结构 - 使用ConcurrentHashMap保证线程安全
     //单例Bean + final 确保变量全局唯一。
-    private final Map<String, List<ServiceInstance>> serviceRegistry = new ConcurrentHashMap<>();
+    // 服务注册表：serviceName -> 不可变实例快照（写时复制，读无锁）
+    private final Map<String, InstanceSnapshot> serviceRegistry = new ConcurrentHashMap<>();
+    // 实例索引：serviceName -> (instanceId -> ServiceInstance)，注册/心跳/注销O(1)定位实例
+    private final Map<String, Map<String, ServiceInstance>> serviceIndex = new ConcurrentHashMap<>();
+    // 全局实例索引：instanceId -> ServiceInstance
+    // 同时作为心跳时间表：心跳时间存放在实例自身的volatile long字段中，心跳只写原始类型，不装箱不分配
+    private final Map<String, ServiceInstance> instanceIndex = new ConcurrentHashMap<>();
     private final Map<String, ConfigItem> configStore = new ConcurrentHashMap<>();
+    // 已追加WAL、尚未落盘的配置变更：key -> 最后一次变更，落盘后才写入configStore（由配置写锁保护）
+    private final Map<String, PendingConfig> pendingConfigs = new HashMap<>();
 
-    // 心跳时间戳缓存 - 使用ConcurrentHashMap
-    private final Map<String, Long> heartbeatTimestamps = new ConcurrentHashMap<>();
+    // 配置预写日志：配置变更落盘后才写入内存并确认，重启时回放恢复
+    @Autowired
+    private ConfigWriteAheadLog configWal;
+
+    // 配置快照：定期生成，之前的WAL段随之删除，启动只需加载快照并回放WAL尾部
+    @Autowired
+    private ConfigSnapshotStore configSnapshotStore;
+    // 最近一次快照覆盖到的LSN，只由快照任务修改
+    private volatile long snapshotLsn;
+
+    // 配置内容存储：mmap模式下configStore只保存元数据，内容在内存映射文件中
+    @Autowired
+    private MappedConfigContentStore contentStore;
+
+    // 心跳超时时间：超过该时间没有心跳的实例会被注销
+    @Value("${custom.registry.health-check.timeout:30000}")
+    private long heartbeatTimeout = 30000;
+
+    // 心跳过期时间轮：1秒一个槽位，一圈64秒（需大于心跳超时时间）
+    private final HeartbeatTimingWheel expiryWheel = new HeartbeatTimingWheel(1000, 64);
 
     // 配置监听器 - 使用线程安全的CopyOnWriteArrayList
     private final Map<String, List<ConfigListener>> configListeners = new ConcurrentHashMap<>();
 
+    // 全局配置监听器 - 监听所有配置的变更（如长轮询分发引擎）
+    private final List<ConfigListener> globalConfigListeners = new CopyOnWriteArrayList<>();
+
+    // 服务实例变更监听器（如服务订阅推送引擎）
+    private final List<ServiceChangeListener> serviceChangeListeners = new CopyOnWriteArrayList<>();
+
+    // 已被整体移除的服务：serviceName -> 移除时的版本号，用于对已移除服务返回正确的增量
+    private final Map<String, Long> removedServices = new ConcurrentHashMap<>();
+
     // 读写锁用于更复杂的操作
     private final ReadWriteLock configLock = new ReentrantReadWriteLock();
+    // 全局服务锁：写操作持有共享锁（配合分段锁并行写入），需要全量一致视图的操作持有独占锁
     private final StampedLock serviceLock = new StampedLock();
 
+    // 分段锁：按服务名哈希到固定数量的锁上，不同服务的写操作可以在多核上并行
+    private static final int SERVICE_LOCK_STRIPES = 64;
+    private final ReentrantLock[] serviceLockStripes = new ReentrantLock[SERVICE_LOCK_STRIPES];
+
     // 实例ID生成器 - 使用AtomicLong保证原子性
     private final AtomicLong instanceIdGenerator = new AtomicLong(1);
 
+    // 注册表版本号：每次实例快照变更递增，作为快照版本号
+    private final AtomicLong registryRevision = new AtomicLong();
+
     // 统计信息
     private final Map<String, Object> statistics = new ConcurrentHashMap<>();
+    // 操作计数 - LongAdder避免多核下的计数竞争
+    private final Map<String, LongAdder> operationCounters = new ConcurrentHashMap<>();
 
+    public RegistryStore() {
+        for (int i = 0; i < SERVICE_LOCK_STRIPES; i++) {
+            serviceLockStripes[i] = new ReentrantLock();
+        }
+    }
 
 
     @PostConstruct
-    public void init() {
+    public void init() throws IOException {
         System.out.println("✅ RegistryStore初始化完成，使用线程安全存储结构");
         statistics.put("startTime", System.currentTimeMillis());
         statistics.put("serviceCount", 0L);
         statistics.put("configCount", 0L);
-        statistics.put("totalOperations", 0L);
+
+        // 加载快照，再回放快照之后的WAL恢复配置
+        if (configWal.isEnabled()) {
+            snapshotLsn = configSnapshotStore.load(config ->
+                    storeConfig(generateConfigKey(config.getDataId(), config.getGroup()), config));
+        }
+        int replayed = configWal.replay(snapshotLsn, this::applyWalRecord);
+        updateConfigCount();
+        if (snapshotLsn > 0 || replayed > 0) {
+            System.out.println("✅ 配置恢复完成，快照LSN: " + snapshotLsn + ", 回放WAL记录数: " + replayed
+                    + ", 恢复配置数: " + configStore.size());
+        }
     }
 
     @PreDestroy
@@ -80,49 +155,69 @@ public class RegistryStore {
         instance.setLastHeartbeatTime(System.currentTimeMillis());
         instance.setStatus("UP");
 
-        long stamp = serviceLock.writeLock();
+        ServiceInstance registered;
+        long changedRevision = 0;
+        long stamp = serviceLock.readLock();
+        ReentrantLock stripe = serviceLockStripe(serviceName);
+        stripe.lock();
         try {
-            // 获取或创建服务实例列表
-            List<ServiceInstance> instances = serviceRegistry.computeIfAbsent(
-                    serviceName,
-                    k -> Collections.synchronizedList(new ArrayList<>())
-            );
+            InstanceSnapshot snapshot = serviceRegistry.getOrDefault(serviceName, InstanceSnapshot.EMPTY);
+            Map<String, ServiceInstance> index = serviceIndex.computeIfAbsent(serviceName, k -> new ConcurrentHashMap<>());
 
             // 检查是否已存在
-            Optional<ServiceInstance> existing = instances.stream()
-                    .filter(i -> i.getInstanceId().equals(instanceId))
-                    .findFirst();
+            ServiceInstance existingInstance = index.get(instanceId);
 
-            if (existing.isPresent()) {
-                // 更新现有实例
-                ServiceInstance existingInstance = existing.get();
+            if (existingInstance != null) {
+                // 更新现有实例：心跳时间原地更新，元数据或状态变化、或从心跳超时中恢复时才生成新快照
+                boolean recovered = !isInstanceHealthy(existingInstance);
                 existingInstance.setLastHeartbeatTime(System.currentTimeMillis());
-                existingInstance.setStatus("UP");
-                existingInstance.setMetadata(instance.getMetadata());
-                heartbeatTimestamps.put(instanceId, System.currentTimeMillis());
 
-                serviceRegistry.put(serviceName, instances);
+                if (recovered || !"UP".equals(existingInstance.getStatus())
+                        || !Objects.equals(existingInstance.getMetadata(), instance.getMetadata())) {
+                    long revision = registryRevision.incrementAndGet();
+                    instance.setRegistrationTime(existingInstance.getRegistrationTime());
+                    instance.setCreateRevision(existingInstance.getCreateRevision());
+                    instance.setModRevision(revision);
+                    serviceRegistry.put(serviceName, snapshot.replace(instance, revision));
+                    index.put(instanceId, instance);
+                    instanceIndex.put(instanceId, instance);
+                    // 旧实例对象在时间轮中会被惰性丢弃
+                    expiryWheel.schedule(instance, instance.getLastHeartbeatTime() + heartbeatTimeout);
+                    existingInstance = instance;
+                    changedRevision = revision;
+                }
 
                 updateStatistics("update");
                 System.out.println("🔄 服务心跳更新: " + serviceName + " [" + instanceId + "]");
-                return existingInstance;
+                registered = existingInstance;
             } else {
                 // 添加新实例
-                instance.setRegistrationTime(System.currentTimeMillis());
-                instance.setLastHeartbeatTime(System.currentTimeMillis());
-                instance.setStatus("UP");
-
-                instances.add(instance);
-                heartbeatTimestamps.put(instanceId, System.currentTimeMillis());
+                long revision = registryRevision.incrementAndGet();
+                instance.setCreateRevision(revision);
+                instance.setModRevision(revision);
+                InstanceSnapshot updated = snapshot.add(instance, revision);
+                serviceRegistry.put(serviceName, updated);
+                removedServices.remove(serviceName);
+                index.put(instanceId, instance);
+                instanceIndex.put(instanceId, instance);
+                expiryWheel.schedule(instance, instance.getLastHeartbeatTime() + heartbeatTimeout);
 
                 updateStatistics("register");
-                updateServiceCount(serviceName, instances.size());
+                updateServiceCount(serviceName, updated.size());
                 System.out.println("✅ 服务注册成功: " + serviceName + " [" + instanceId + "]");
-                return instance;
+                registered = instance;
+                changedRevision = revision;
             }
         } finally {
-            serviceLock.unlockWrite(stamp);
+            stripe.unlock();
+            serviceLock.unlockRead(stamp);
         }
+
+        // 锁外通知，避免回调阻塞同一分段上的其他写操作
+        if (changedRevision > 0) {
+            notifyServiceChangeListeners(serviceName, changedRevision);
+        }
+        return registered;
     }
 
     /**
@@ -133,84 +228,203 @@ public class RegistryStore {
             return false;
         }
 
-        long stamp = serviceLock.writeLock();
+        long revision;
+        long stamp = serviceLock.readLock();
+        ReentrantLock stripe = serviceLockStripe(serviceName);
+        stripe.lock();
         try {
-            List<ServiceInstance> instances = serviceRegistry.get(serviceName);
-            if (instances != null) {
-                boolean removed = instances.removeIf(instance ->
-                        instance.getInstanceId().equals(instanceId));
-
-                if (removed) {
-                    heartbeatTimestamps.remove(instanceId);
-
-                    // 如果服务没有实例了，移除服务
-                    if (instances.isEmpty()) {
-                        serviceRegistry.remove(serviceName);
-                        updateServiceCount(serviceName, 0);
-                    } else {
-                        updateServiceCount(serviceName, instances.size());
-                    }
-
-                    updateStatistics("deregister");
-                    return true;
-                }
-            }
+            revision = removeInstanceLocked(serviceName, instanceId);
+        } finally {
+            stripe.unlock();
+            serviceLock.unlockRead(stamp);
+        }
+        if (revision == 0) {
             return false;
+        }
+
+        notifyServiceChangeListeners(serviceName, revision);
+        return true;
+    }
+
+    /**
+     * 注销心跳超时的实例：在分段锁内确认实例仍是当前注册的对象且仍然超时才注销，
+     * 同一ID已重新注册的新实例、确认前刚收到心跳的实例都不会被误删
+     *
+     * @return 是否注销了该实例
+     */
+    private boolean deregisterExpiredInstance(ServiceInstance instance) {
+        String serviceName = instance.getServiceName();
+        String instanceId = instance.getInstanceId();
+        long revision;
+        long stamp = serviceLock.readLock();
+        ReentrantLock stripe = serviceLockStripe(serviceName);
+        stripe.lock();
+        try {
+            if (instanceIndex.get(instanceId) != instance) {
+                return false;
+            }
+            long deadline = instance.getLastHeartbeatTime() + heartbeatTimeout;
+            if (deadline > System.currentTimeMillis()) {
+                expiryWheel.schedule(instance, deadline);
+                return false;
+            }
+            revision = removeInstanceLocked(serviceName, instanceId);
         } finally {
-            serviceLock.unlockWrite(stamp);
+            stripe.unlock();
+            serviceLock.unlockRead(stamp);
+        }
+        if (revision == 0) {
+            return false;
+        }
+
+        notifyServiceChangeListeners(serviceName, revision);
+        return true;
+    }
+
+    /**
+     * 从注册表中移除实例，返回新的版本号，实例不存在时返回0 - 调用方需持有服务共享锁和分段锁
+     */
+    private long removeInstanceLocked(String serviceName, String instanceId) {
+        Map<String, ServiceInstance> index = serviceIndex.get(serviceName);
+        if (index == null || index.remove(instanceId) == null) {
+            return 0;
+        }
+        instanceIndex.remove(instanceId);
+        long revision = registryRevision.incrementAndGet();
+
+        // 如果服务没有实例了，移除服务
+        if (index.isEmpty()) {
+            serviceIndex.remove(serviceName);
+            serviceRegistry.remove(serviceName);
+            removedServices.put(serviceName, revision);
+            updateServiceCount(serviceName, 0);
+        } else {
+            InstanceSnapshot updated = serviceRegistry.get(serviceName).remove(instanceId, revision);
+            serviceRegistry.put(serviceName, updated);
+            updateServiceCount(serviceName, updated.size());
         }
+
+        updateStatistics("deregister");
+        return revision;
     }
 
     /**
-     * 获取服务的所有实例 - 线程安全读取
+     * 获取服务的所有实例 - 无锁读取
+     * 返回的是共享的只读快照，调用方不可修改
      */
     public List<ServiceInstance> getInstances(String serviceName) {
         if (serviceName == null) {
             return Collections.emptyList();
         }
 
-        long stamp = serviceLock.tryOptimisticRead();
-        List<ServiceInstance> instances = new ArrayList<>(serviceRegistry.getOrDefault(serviceName,
-                Collections.emptyList()));
+        return serviceRegistry.getOrDefault(serviceName, InstanceSnapshot.EMPTY).getInstances();
+    }
 
-        if (!serviceLock.validate(stamp)) {
-            stamp = serviceLock.readLock();
-            try {
-                instances = new ArrayList<>(serviceRegistry.getOrDefault(serviceName,
-                        Collections.emptyList()));
-            } finally {
-                serviceLock.unlockRead(stamp);
+    /**
+     * 根据实例ID获取实例 - O(1)无锁读取
+     */
+    public ServiceInstance getInstance(String instanceId) {
+        return instanceId != null ? instanceIndex.get(instanceId) : null;
+    }
+
+    /**
+     * 获取服务的实例快照（含版本号） - 无锁读取
+     */
+    public InstanceSnapshot getSnapshot(String serviceName) {
+        if (serviceName == null) {
+            return InstanceSnapshot.EMPTY;
+        }
+
+        return serviceRegistry.getOrDefault(serviceName, InstanceSnapshot.EMPTY);
+    }
+
+    /**
+     * 获取服务自sinceRevision以来的实例增量 - 无锁读取
+     * 服务已被整体移除时，客户端版本号早于移除时间则返回空的全量结果；
+     * 服务从未注册过则视为没有变化；sinceRevision为负数（客户端的视图来自其他节点）时总是返回全量。
+     * 与 /instance/list 一致只下发健康实例：心跳超时的实例从全量中去掉，在增量中作为移除下发
+     */
+    public ServiceDelta getDelta(String serviceName, long sinceRevision) {
+        InstanceSnapshot snapshot = serviceRegistry.get(serviceName);
+        if (snapshot != null) {
+            return filterUnhealthy(snapshot.delta(serviceName, sinceRevision));
+        }
+        Long removedRevision = removedServices.get(serviceName);
+        if (removedRevision != null && sinceRevision < removedRevision) {
+            ServiceDelta delta = new ServiceDelta(serviceName, removedRevision);
+            delta.setFull(true);
+            return delta;
+        }
+        if (sinceRevision < 0) {
+            ServiceDelta delta = new ServiceDelta(serviceName, 0);
+            delta.setFull(true);
+            return delta;
+        }
+        return new ServiceDelta(serviceName, sinceRevision);
+    }
+
+    private ServiceDelta filterUnhealthy(ServiceDelta delta) {
+        if (delta.isFull()) {
+            List<ServiceInstance> healthy = new ArrayList<>(delta.getInstances().size());
+            for (ServiceInstance instance : delta.getInstances()) {
+                if (isInstanceHealthy(instance)) {
+                    healthy.add(instance);
+                }
             }
+            delta.setInstances(healthy);
+            return delta;
         }
+        moveUnhealthyToRemoved(delta.getAdded(), delta.getRemoved());
+        moveUnhealthyToRemoved(delta.getChanged(), delta.getRemoved());
+        return delta;
+    }
+
+    private void moveUnhealthyToRemoved(List<ServiceInstance> instances, List<String> removed) {
+        Iterator<ServiceInstance> iterator = instances.iterator();
+        while (iterator.hasNext()) {
+            ServiceInstance instance = iterator.next();
+            if (!isInstanceHealthy(instance)) {
+                iterator.remove();
+                removed.add(instance.getInstanceId());
+            }
+        }
+    }
 
-        return instances;
+    /**
+     * 获取注册表全局版本号，任一服务的实例变更后递增
+     */
+    public long getRegistryRevision() {
+        return registryRevision.get();
+    }
+
+    /**
+     * 获取所有实例的只读视图 - 无锁遍历，不保证跨服务的一致性（用于集群校验）
+     */
+    public Collection<ServiceInstance> getAllInstances() {
+        return Collections.unmodifiableCollection(instanceIndex.values());
     }
 
     /**
      * 获取所有服务名称 - 线程安全
      */
     public Set<String> getAllServiceNames() {
-        long stamp = serviceLock.readLock();
-        try {
-            return new HashSet<>(serviceRegistry.keySet());
-        } finally {
-            serviceLock.unlockRead(stamp);
-        }
+        return new HashSet<>(serviceRegistry.keySet());
     }
 
     /**
      * 获取所有服务实例 - 线程安全
+     * 短暂持有独占锁得到所有服务的一致视图，各服务的实例列表为只读快照，无需逐个拷贝
      */
     public Map<String, List<ServiceInstance>> getAllServices() {
-        long stamp = serviceLock.readLock();
+        long stamp = serviceLock.writeLock();
         try {
             Map<String, List<ServiceInstance>> result = new HashMap<>();
-            for (Map.Entry<String, List<ServiceInstance>> entry : serviceRegistry.entrySet()) {
-                result.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            for (Map.Entry<String, InstanceSnapshot> entry : serviceRegistry.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().getInstances());
             }
             return result;
         } finally {
-            serviceLock.unlockRead(stamp);
+            serviceLock.unlockWrite(stamp);
         }
     }
 
@@ -220,6 +434,25 @@ public class RegistryStore {
      * 发布配置 - 线程安全
      */
     public ConfigItem publishConfig(ConfigItem config) {
+        if (config != null && !isValidConfigKey(config.getDataId(), config.getGroup())) {
+            throw new IllegalArgumentException("dataId和group不能包含':'");
+        }
+        return publishConfig(config, System.currentTimeMillis());
+    }
+
+    /**
+     * 配置键和批量监听协议都以':'分隔dataId、group和MD5，dataId和group中出现':'会导致解析出错误的配置，
+     * 发布时直接拒绝（group为null时使用默认分组）
+     */
+    public static boolean isValidConfigKey(String dataId, String group) {
+        return (dataId == null || dataId.indexOf(':') < 0) && (group == null || group.indexOf(':') < 0);
+    }
+
+    /**
+     * 以指定的更新时间发布配置 - 用于应用Raft日志：同一条日志在各节点上得到相同的结果，
+     * 重复应用（如重启后回放）时内容和更新时间都相同则直接返回当前配置，不再递增版本号
+     */
+    public ConfigItem publishConfig(ConfigItem config, long updateTime) {
         if (config == null || config.getDataId() == null || config.getContent() == null) {
             throw new IllegalArgumentException("配置参数无效");
         }
@@ -227,32 +460,51 @@ public class RegistryStore {
         String dataId = config.getDataId();
         String group = config.getGroup() != null ? config.getGroup() : "DEFAULT_GROUP";
         String key = generateConfigKey(dataId, group);
+        String md5 = calculateMD5(config.getContent());
+        ConfigItem current;
+        CompletableFuture<Void> visible;
+        boolean duplicate;
         configLock.writeLock().lock();
         try {
-            // 设置配置属性
-            long version = configStore.getOrDefault(key, config).getVersion();
-            if (version == 0) {
-                config.setVersion(1);
+            current = latestConfig(key);
+            duplicate = current != null && current.getUpdateTime() == updateTime && md5.equals(current.getMd5());
+            if (duplicate) {
+                PendingConfig pending = pendingConfigs.get(key);
+                if (pending == null) {
+                    return materialize(current);
+                }
+                // 同一变更已追加但尚未落盘，等它生效即可，不再重复写入
+                visible = pending.visible;
             } else {
-                config.setVersion(version + 1);
-            }
+                // 设置配置属性，版本号基于包括未落盘变更在内的最新状态
+                long version = (current != null ? current : config).getVersion();
+                if (version == 0) {
+                    config.setVersion(1);
+                } else {
+                    config.setVersion(version + 1);
+                }
 
-            config.setMd5(calculateMD5(config.getContent()));
-            config.setUpdateTime(System.currentTimeMillis());
+                config.setGroup(group);
+                config.setMd5(md5);
+                config.setUpdateTime(updateTime);
 
-            // 存储配置
-            configStore.put(key, config);
-            System.out.println("📝 配置发布成功: " + key + " v" + config.getVersion());
-            // 通知监听器
-            notifyConfigListeners(key, config);
+                // 写锁内追加WAL，保证日志顺序与版本号顺序一致；落盘在锁外等待（组提交），落盘后才写入内存
+                visible = stageConfig(key, config, configWal.appendPublish(config));
 
-            updateStatistics("configPublish");
-            updateConfigCount();
-
-            return config;
+                updateStatistics("configPublish");
+            }
         } finally {
             configLock.writeLock().unlock();
         }
+
+        // 落盘后才确认发布并通知监听器，避免在写锁内执行回调
+        awaitDurable(visible, key);
+        if (duplicate) {
+            return current;
+        }
+        System.out.println("📝 配置发布成功: " + key + " v" + config.getVersion());
+        notifyConfigListeners(key, config);
+        return config;
     }
 
     /**
@@ -271,7 +523,49 @@ public class RegistryStore {
             if (config != null) {
                 updateStatistics("configGet");
             }
-            return config;
+            return materialize(config);
+        } finally {
+            configLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取配置元数据（mmap模式下不含内容），不读取内容；配置不存在时返回null
+     * 每次发布都存入新的对象，返回的版本号和MD5始终属于同一次发布
+     */
+    public ConfigItem getConfigMetadata(String dataId, String group) {
+        return configStore.get(generateConfigKey(dataId, group != null ? group : "DEFAULT_GROUP"));
+    }
+
+    /**
+     * 获取配置MD5 - 只读元数据，不读取内容；配置不存在时返回null
+     */
+    public String getConfigMd5(String dataId, String group) {
+        ConfigItem config = getConfigMetadata(dataId, group);
+        return config != null ? config.getMd5() : null;
+    }
+
+    /**
+     * 获取配置内容的字节视图，供HTTP层直接输出；配置不存在时返回null
+     * mmap模式下直接指向映射内存，不经过String和JSON序列化
+     */
+    public ByteBuffer getConfigContent(String dataId, String group) {
+        if (dataId == null) {
+            return null;
+        }
+        String key = generateConfigKey(dataId, group != null ? group : "DEFAULT_GROUP");
+
+        configLock.readLock().lock();
+        try {
+            ConfigItem config = configStore.get(key);
+            if (config == null) {
+                return null;
+            }
+            updateStatistics("configGet");
+            if (contentStore.isEnabled()) {
+                return contentStore.getBuffer(config.getMd5());
+            }
+            return ByteBuffer.wrap(config.getContent().getBytes(StandardCharsets.UTF_8));
         } finally {
             configLock.readLock().unlock();
         }
@@ -285,20 +579,65 @@ public class RegistryStore {
             return false;
         }
 
-        String key = generateConfigKey(dataId, group != null ? group : "DEFAULT_GROUP");
+        String groupName = group != null ? group : "DEFAULT_GROUP";
+        String key = generateConfigKey(dataId, groupName);
 
+        CompletableFuture<Void> visible;
         configLock.writeLock().lock();
         try {
-            ConfigItem removed = configStore.remove(key);
-            if (removed != null) {
-                updateStatistics("configDelete");
-                updateConfigCount();
-                return true;
+            if (latestConfig(key) == null) {
+                return false;
             }
+            visible = stageConfig(key, null, configWal.appendDelete(dataId, groupName));
+            updateStatistics("configDelete");
+        } finally {
+            configLock.writeLock().unlock();
+        }
+
+        awaitDurable(visible, key);
+        notifyConfigListeners(key, null);
+        return true;
+    }
+
+    /**
+     * 应用其他集群节点复制过来的配置 - 保留源节点的版本号、MD5和更新时间
+     * 按更新时间后写者胜（时间相同时比较MD5），不比本地新的配置直接忽略
+     *
+     * @return 是否覆盖了本地配置
+     */
+    public boolean applyReplicatedConfig(ConfigItem config) {
+        if (config == null || config.getDataId() == null || config.getContent() == null || config.getGroup() == null) {
             return false;
+        }
+
+        String key = generateConfigKey(config.getDataId(), config.getGroup());
+        if (config.getMd5() == null) {
+            config.setMd5(calculateMD5(config.getContent()));
+        }
+        CompletableFuture<Void> visible;
+        configLock.writeLock().lock();
+        try {
+            ConfigItem current = latestConfig(key);
+            if (current != null && !isNewer(config, current)) {
+                return false;
+            }
+            visible = stageConfig(key, config, configWal.appendPublish(config));
+            updateStatistics("configReplicate");
         } finally {
             configLock.writeLock().unlock();
         }
+
+        awaitDurable(visible, key);
+        System.out.println("📝 配置同步成功: " + key + " v" + config.getVersion());
+        notifyConfigListeners(key, config);
+        return true;
+    }
+
+    /**
+     * 获取所有配置的元数据（mmap模式下不含内容），不读取映射文件（用于集群校验）
+     */
+    public List<ConfigItem> getAllConfigMetadata() {
+        return new ArrayList<>(configStore.values());
     }
 
     /**
@@ -310,7 +649,11 @@ public class RegistryStore {
             if (configStore.isEmpty()) {
                 return Collections.emptyList();
             }
-            return new ArrayList<>(configStore.values());
+            List<ConfigItem> configs = new ArrayList<>(configStore.size());
+            for (ConfigItem config : configStore.values()) {
+                configs.add(materialize(config));
+            }
+            return configs;
         } finally {
             configLock.readLock().unlock();
         }
@@ -318,56 +661,160 @@ public class RegistryStore {
 
     // ==================== 心跳管理 ====================
 
+    /**
+     * 心跳快速路径 - 按实例ID只刷新心跳时间，不加锁也不重新走注册流程
+     * @return 实例是否已注册，未注册时由调用方重新注册
+     */
+    public boolean heartbeat(String instanceId) {
+        if (instanceId == null) {
+            return false;
+        }
+        ServiceInstance instance = instanceIndex.get(instanceId);
+        if (instance == null) {
+            return false;
+        }
+
+        boolean recovered = !isInstanceHealthy(instance);
+        instance.setLastHeartbeatTime(System.currentTimeMillis());
+        updateStatistics("heartbeat");
+        if (recovered) {
+            markInstanceRecovered(instance);
+        }
+        return true;
+    }
+
+    /**
+     * 心跳超时后、被摘除之前恢复的实例：增量中已把它作为移除下发，生成新版本让订阅方重新看到它
+     */
+    private void markInstanceRecovered(ServiceInstance instance) {
+        String serviceName = instance.getServiceName();
+        long revision;
+        long stamp = serviceLock.readLock();
+        ReentrantLock stripe = serviceLockStripe(serviceName);
+        stripe.lock();
+        try {
+            InstanceSnapshot snapshot = serviceRegistry.get(serviceName);
+            if (snapshot == null || instanceIndex.get(instance.getInstanceId()) != instance) {
+                return;
+            }
+            revision = registryRevision.incrementAndGet();
+            instance.setModRevision(revision);
+            serviceRegistry.put(serviceName, snapshot.replace(instance, revision));
+        } finally {
+            stripe.unlock();
+            serviceLock.unlockRead(stamp);
+        }
+        notifyServiceChangeListeners(serviceName, revision);
+    }
+
     /**
      * 更新心跳时间 - 线程安全
+     * 实例已注册时走心跳快速路径，未注册（如注册中心重启）时才完整注册
+     *
+     * @return 本次重新注册的实例，只刷新了心跳时返回null
      */
-    public void updateHeartbeat(ServiceInstance instance) {
+    public ServiceInstance updateHeartbeat(ServiceInstance instance) {
         if (instance != null) {
             String instanceId = generateInstanceId(instance);
-            heartbeatTimestamps.put(instanceId, System.currentTimeMillis());
-            //todo if required here??
-            registerInstance(instance);
-            updateStatistics("heartbeat");
+            if (!heartbeat(instanceId)) {
+                ServiceInstance registered = registerInstance(instance);
+                updateStatistics("heartbeat");
+                return registered;
+            }
         }
+        return null;
     }
 
     /**
-     * 获取心跳时间 - 线程安全
+     * 获取心跳时间 - 线程安全，实例未注册时返回-1
      */
-    public Long getHeartbeatTime(String instanceId) {
-        return instanceId != null ? heartbeatTimestamps.get(instanceId) : null;
+    public long getHeartbeatTime(String instanceId) {
+        ServiceInstance instance = instanceId != null ? instanceIndex.get(instanceId) : null;
+        return instance != null ? instance.getLastHeartbeatTime() : -1;
     }
 
     /**
-     * 获取所有心跳记录 - 线程安全
+     * 判断实例是否健康：心跳未超时 - 线程安全
+     */
+    public boolean isInstanceHealthy(ServiceInstance instance) {
+        return System.currentTimeMillis() - instance.getLastHeartbeatTime() < heartbeatTimeout;
+    }
+
+    /**
+     * 获取所有心跳记录 - 线程安全（仅用于诊断，会按需装箱）
      */
     public Map<String, Long> getAllHeartbeatTimes() {
-        return new HashMap<>(heartbeatTimestamps);
+        Map<String, Long> heartbeatTimes = new HashMap<>();
+        for (ServiceInstance instance : instanceIndex.values()) {
+            heartbeatTimes.put(instance.getInstanceId(), instance.getLastHeartbeatTime());
+        }
+        return heartbeatTimes;
     }
 
     /**
-     * 清理过期心跳 - 线程安全
+     * 注销心跳超时的实例 - 由健康检查线程定期调用（仅限单线程调用）
+     * 只检查时间轮上到期的槽位，不遍历整个注册表
+     *
+     * @return 本次被注销的实例
      */
-    public int cleanupExpiredHeartbeats(long threshold, long timeoutMillis) {
-        int removedCount = 0;
-        long currentTime = System.currentTimeMillis();
+    public List<ServiceInstance> evictExpiredInstances() {
+        long now = System.currentTimeMillis();
+        List<ServiceInstance> expired = expiryWheel.advance(now, this::getWheelHeartbeatTime, heartbeatTimeout);
+        if (expired.isEmpty()) {
+            return expired;
+        }
 
-        for (Map.Entry<String, Long> entry : heartbeatTimestamps.entrySet()) {
-            if (currentTime - entry.getValue() > timeoutMillis) {
-                heartbeatTimestamps.remove(entry.getKey());
-                removedCount++;
+        List<ServiceInstance> removed = new ArrayList<>(expired.size());
+        for (ServiceInstance instance : expired) {
+            // 已注销或已被同一ID的新实例替换，新实例有自己的时间轮条目
+            long heartbeatTime = getWheelHeartbeatTime(instance);
+            if (heartbeatTime < 0) {
+                continue;
+            }
+            // 注销前再确认一次，期间收到心跳的实例重新挂回时间轮
+            if (heartbeatTime + heartbeatTimeout > now) {
+                expiryWheel.schedule(instance, heartbeatTime + heartbeatTimeout);
+                continue;
+            }
+            if (deregisterExpiredInstance(instance)) {
+                removed.add(instance);
             }
         }
-
-        if (removedCount > 0) {
-            updateStatistics("heartbeatCleanup", removedCount);
+        if (!removed.isEmpty()) {
+            updateStatistics("heartbeatCleanup", removed.size());
         }
+        return removed;
+    }
 
-        return removedCount;
+    /**
+     * 获取心跳超时时间
+     */
+    public long getHeartbeatTimeout() {
+        return heartbeatTimeout;
     }
 
     // ==================== 监听器管理 ====================
-    //todo  配置监听器一直未实现且未调用
+
+    /**
+     * 添加全局配置监听器，所有配置的发布/删除都会回调 - 线程安全
+     */
+    public void addConfigListener(ConfigListener listener) {
+        if (listener == null) return;
+
+        globalConfigListeners.add(listener);
+        System.out.println("➕ 添加全局配置监听器: " + listener.getClass().getSimpleName());
+    }
+
+    /**
+     * 添加服务实例变更监听器 - 线程安全
+     */
+    public void addServiceChangeListener(ServiceChangeListener listener) {
+        if (listener == null) return;
+
+        serviceChangeListeners.add(listener);
+        System.out.println("➕ 添加服务变更监听器: " + listener.getClass().getSimpleName());
+    }
+
     /**
      * 添加配置监听器 - 线程安全
      */
@@ -375,7 +822,7 @@ public class RegistryStore {
         if (listener == null) return;
 
         String key = generateConfigKey(dataId, group != null ? group : "DEFAULT_GROUP");
-        configListeners.computeIfAbsent(key, k -> new ArrayList<>()).add(listener);
+        configListeners.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(listener);
         System.out.println("➕ 添加配置监听器: " + key + ", 当前监听器数: " +
                 configListeners.get(key).size());
     }
@@ -422,11 +869,14 @@ public class RegistryStore {
         long stamp = serviceLock.writeLock();
         try {
             serviceRegistry.clear();
+            serviceIndex.clear();
+            instanceIndex.clear();
+            removedServices.clear();
             configStore.clear();
-            heartbeatTimestamps.clear();
             configListeners.clear();
             instanceIdGenerator.set(1);
             statistics.clear();
+            operationCounters.clear();
 
             System.out.println("✅ 所有存储数据已清理");
         } finally {
@@ -438,21 +888,222 @@ public class RegistryStore {
      * 获取统计信息
      */
     public Map<String, Object> getStatistics() {
+        operationCounters.forEach((operation, counter) -> statistics.put(operation, counter.sum()));
         statistics.put("serviceCount", (long) serviceRegistry.size());
         statistics.put("configCount", (long) configStore.size());
-        statistics.put("heartbeatCount", (long) heartbeatTimestamps.size());
+        statistics.put("heartbeatCount", (long) instanceIndex.size());
         statistics.put("listenerCount", (long) configListeners.size());
         return new HashMap<>(statistics);
     }
 
     // ==================== 私有方法 ====================
 
-    private String generateInstanceId(ServiceInstance instance) {
+    /**
+     * 生成实例ID：serviceName-ip:port，集群中按实例ID划分负责节点
+     */
+    public String generateInstanceId(ServiceInstance instance) {
         return instance.getServiceName() + "-" +
                 instance.getIp() + ":" + instance.getPort();
                 //+ "-" + instanceIdGenerator.getAndIncrement();
     }
 
+    /**
+     * 生成配置快照 - 由后台定时任务调用
+     * 先切换WAL段，再在读锁内拷贝配置引用，序列化和落盘在锁外进行；
+     * 快照落盘后删除已被覆盖的旧WAL段。自上次快照以来没有变更时直接跳过
+     *
+     * @return 是否生成了新快照
+     */
+    public boolean snapshotConfigs() throws Exception {
+        if (!configWal.isEnabled() || configWal.getLastLsn() == snapshotLsn) {
+            return false;
+        }
+
+        // 切段完成时，LSN不大于lsn的记录都已落盘并写入内存（落盘回调按LSN顺序在切段之前执行）。
+        // 之后拷贝的内存状态可能还包含lsn之后的变更，恢复时按顺序回放WAL尾部会再覆盖一次，结果相同
+        long lsn = configWal.roll().get(10, TimeUnit.SECONDS);
+
+        List<ConfigItem> configs;
+        List<ByteBuffer> contents = null;
+        configLock.readLock().lock();
+        try {
+            // 已发布的ConfigItem不会再被修改，拷贝引用即可；
+            // mmap模式下同时取出内容的映射视图，配置之后被覆盖或删除时已取出的视图仍然可读
+            configs = new ArrayList<>(configStore.values());
+            if (contentStore.isEnabled()) {
+                contents = new ArrayList<>(configs.size());
+                for (ConfigItem config : configs) {
+                    contents.add(contentStore.getBuffer(config.getMd5()));
+                }
+            }
+        } finally {
+            configLock.readLock().unlock();
+        }
+
+        // mmap模式下在锁外把内容读回堆内，不阻塞发布和读取
+        if (contents != null) {
+            for (int i = 0; i < configs.size(); i++) {
+                ConfigItem copy = copyConfig(configs.get(i));
+                copy.setContent(StandardCharsets.UTF_8.decode(contents.get(i)).toString());
+                configs.set(i, copy);
+            }
+        }
+
+        long size = configSnapshotStore.write(lsn, configs);
+        configWal.deleteSegmentsCoveredBy(lsn);
+        snapshotLsn = lsn;
+        System.out.println("💾 配置快照已生成，LSN: " + lsn + ", 配置数: " + configs.size() + ", 大小: " + size + " 字节");
+        return true;
+    }
+
+    /**
+     * 回放一条WAL记录到内存（不写日志、不通知监听器）
+     */
+    private void applyWalRecord(ConfigWriteAheadLog.Record record) {
+        ConfigItem config = record.getConfig();
+        String key = generateConfigKey(config.getDataId(), config.getGroup());
+        if (record.getType() == ConfigWriteAheadLog.TYPE_PUBLISH) {
+            storeConfig(key, config);
+        } else {
+            removeConfig(key);
+        }
+    }
+
+    /**
+     * 存储配置 - 调用方需持有配置写锁（或处于启动恢复阶段）
+     * mmap模式下内容写入映射文件，configStore只保存不含内容的元数据
+     */
+    private void storeConfig(String key, ConfigItem config) {
+        if (!contentStore.isEnabled()) {
+            configStore.put(key, config);
+            return;
+        }
+        contentStore.retain(config.getMd5(), config.getContent());
+        ConfigItem metadata = copyConfig(config);
+        metadata.setContent(null);
+        ConfigItem previous = configStore.put(key, metadata);
+        if (previous != null) {
+            contentStore.release(previous.getMd5());
+        }
+    }
+
+    private ConfigItem removeConfig(String key) {
+        ConfigItem removed = configStore.remove(key);
+        if (removed != null && contentStore.isEnabled()) {
+            contentStore.release(removed.getMd5());
+        }
+        return removed;
+    }
+
+    /**
+     * mmap模式下把内容读回堆内，返回完整的配置副本；heap模式直接返回原对象
+     */
+    private ConfigItem materialize(ConfigItem config) {
+        if (config == null || !contentStore.isEnabled()) {
+            return config;
+        }
+        ConfigItem copy = copyConfig(config);
+        copy.setContent(contentStore.getString(config.getMd5()));
+        return copy;
+    }
+
+    private ConfigItem copyConfig(ConfigItem config) {
+        ConfigItem copy = new ConfigItem();
+        copy.setDataId(config.getDataId());
+        copy.setGroup(config.getGroup());
+        copy.setContent(config.getContent());
+        copy.setType(config.getType());
+        copy.setVersion(config.getVersion());
+        copy.setMd5(config.getMd5());
+        copy.setUpdateTime(config.getUpdateTime());
+        return copy;
+    }
+
+    /**
+     * 配置的最新状态（包括尚未落盘的变更），删除或不存在时为null - 调用方需持有配置写锁
+     * 已落盘的配置在mmap模式下只有元数据，未落盘的变更是完整配置
+     */
+    private ConfigItem latestConfig(String key) {
+        PendingConfig pending = pendingConfigs.get(key);
+        return pending != null ? pending.config : configStore.get(key);
+    }
+
+    /**
+     * 登记一次已追加到WAL的配置变更 - 调用方需持有配置写锁
+     * 变更在落盘后才写入configStore，读取方不会看到之后可能失败的变更；
+     * WAL写线程按LSN顺序完成记录，内存的变更顺序与日志一致
+     *
+     * @param config 发布的配置，删除时为null
+     * @return 变更可见（或落盘失败）后完成的Future
+     */
+    private CompletableFuture<Void> stageConfig(String key, ConfigItem config, CompletableFuture<Void> durable) {
+        PendingConfig pending = new PendingConfig(config);
+        pendingConfigs.put(key, pending);
+        pending.visible = durable.whenComplete((v, e) -> commitConfig(key, pending, e));
+        return pending.visible;
+    }
+
+    /**
+     * 落盘回调：成功时把变更写入内存，失败时丢弃（写入失败的批次已从WAL截断，内存保持原状）
+     */
+    private void commitConfig(String key, PendingConfig pending, Throwable error) {
+        configLock.writeLock().lock();
+        try {
+            if (pendingConfigs.get(key) == pending) {
+                pendingConfigs.remove(key);
+            }
+            if (error != null) {
+                System.err.println("⚠️ 配置变更未能持久化，未生效: " + key);
+                return;
+            }
+            if (pending.config != null) {
+                storeConfig(key, pending.config);
+            } else {
+                removeConfig(key);
+            }
+            updateConfigCount();
+        } finally {
+            configLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 等待配置变更落盘并生效，失败时发布/删除不予确认
+     * 超时的变更之后仍可能落盘，落盘后照常生效
+     */
+    private void awaitDurable(CompletableFuture<Void> visible, String key) {
+        try {
+            visible.get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("配置持久化被中断: " + key, e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("配置持久化超时: " + key, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("配置持久化失败: " + key, e.getCause());
+        }
+    }
+
+    /**
+     * 时间轮回调：实例已被注销或被新对象替换时返回-1
+     */
+    private long getWheelHeartbeatTime(ServiceInstance instance) {
+        if (instanceIndex.get(instance.getInstanceId()) != instance) {
+            return -1;
+        }
+        return instance.getLastHeartbeatTime();
+    }
+
+    /**
+     * a是否比b新：更新时间更晚，或更新时间相同但MD5更大（保证各节点的裁决结果一致）
+     */
+    private boolean isNewer(ConfigItem a, ConfigItem b) {
+        if (a.getUpdateTime() != b.getUpdateTime()) {
+            return a.getUpdateTime() > b.getUpdateTime();
+        }
+        return a.getMd5().compareTo(b.getMd5()) > 0;
+    }
+
     private String generateConfigKey(String dataId, String group) {
         return dataId + ":" + group;
     }
@@ -460,7 +1111,7 @@ public class RegistryStore {
     private String calculateMD5(String content) {
         try {
             MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(content.getBytes());
+            byte[] digest = md.digest(content.getBytes(StandardCharsets.UTF_8));
             StringBuilder sb = new StringBuilder();
             for (byte b : digest) {
                 sb.append(String.format("%02x", b));
@@ -472,31 +1123,54 @@ public class RegistryStore {
     }
 
     /**
-     * 通知配置监听器
+     * 通知配置监听器，config为null表示配置已删除
      */
     private void notifyConfigListeners(String key, ConfigItem config) {
+        for (ConfigListener listener : globalConfigListeners) {
+            notifyConfigListener(listener, key, config);
+        }
         List<ConfigListener> listeners = configListeners.get(key);
         if (listeners != null && !listeners.isEmpty()) {
             for (ConfigListener listener : listeners) {
-                try {
-                    listener.onConfigChanged(key, config);
-                } catch (Exception e) {
-                    System.err.println("配置监听器通知失败: " + e.getMessage());
-                }
+                notifyConfigListener(listener, key, config);
             }
         }
     }
 
+    private void notifyServiceChangeListeners(String serviceName, long revision) {
+        for (ServiceChangeListener listener : serviceChangeListeners) {
+            try {
+                listener.onServiceChanged(serviceName, revision);
+            } catch (Exception e) {
+                System.err.println("服务变更监听器通知失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private void notifyConfigListener(ConfigListener listener, String key, ConfigItem config) {
+        try {
+            listener.onConfigChanged(key, config);
+        } catch (Exception e) {
+            System.err.println("配置监听器通知失败: " + e.getMessage());
+        }
+    }
+
     private void updateStatistics(String operation) {
         updateStatistics(operation, 1);
     }
 
     private void updateStatistics(String operation, long increment) {
-        statistics.compute("totalOperations", (k, v) ->
-                (v == null ? 0L : (Long) v) + increment);
+        operationCounter("totalOperations").add(increment);
+        operationCounter(operation + "Count").add(increment);
+    }
+
+    private LongAdder operationCounter(String name) {
+        LongAdder counter = operationCounters.get(name);
+        return counter != null ? counter : operationCounters.computeIfAbsent(name, k -> new LongAdder());
+    }
 
-        statistics.compute(operation + "Count", (k, v) ->
-                (v == null ? 0L : (Long) v) + increment);
+    private ReentrantLock serviceLockStripe(String serviceName) {
+        return serviceLockStripes[(serviceName.hashCode() & 0x7fffffff) % SERVICE_LOCK_STRIPES];
     }
 
     private void updateServiceCount(String serviceName, int count) {
@@ -507,4 +1181,16 @@ public class RegistryStore {
         statistics.put("configCount", (long) configStore.size());
     }
 
+    /**
+     * 尚未落盘的配置变更
+     */
+    private static class PendingConfig {
+        final ConfigItem config;
+        CompletableFuture<Void> visible;
+
+        PendingConfig(ConfigItem config) {
+            this.config = config;
+        }
+    }
+
 }
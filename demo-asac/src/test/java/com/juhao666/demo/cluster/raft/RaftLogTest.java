@@ -0,0 +1,246 @@
+package com.juhao666.demo.cluster.raft;
+
+import com.juhao666.demo.model.ConfigItem;
+import com.juhao666.demo.store.FailingForceChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RaftLogTest {
+
+    @TempDir
+    Path logDir;
+
+    private RaftLog log;
+
+    @AfterEach
+    void tearDown() {
+        log.close();
+    }
+
+    @Test
+    void reloadsAppendedEntries() throws IOException {
+        log = open();
+        log.append(List.of(entry(1, 1, "a"), entry(2, 1, "b")));
+        log.append(List.of(entry(3, 2, "c")));
+
+        reopen();
+        assertEquals(3, log.lastIndex());
+        assertEquals(2, log.lastTerm());
+        assertEquals("b", log.get(2).getConfig().getContent());
+        assertEquals(RaftLogEntry.CONFIG_PUBLISH, log.get(3).getType());
+        assertEquals(1002, log.get(2).getTimestamp());
+    }
+
+    @Test
+    void answersTermAndSliceQueries() throws IOException {
+        log = open();
+        log.append(List.of(entry(1, 1, "a"), entry(2, 2, "b"), entry(3, 2, "c"), entry(4, 3, "d")));
+
+        assertEquals(0, log.termAt(0));
+        assertEquals(2, log.termAt(3));
+        assertEquals(-1, log.termAt(5));
+        assertEquals(2, log.firstIndexOfTerm(2, 4));
+        assertEquals(1, log.firstIndexOfTerm(1, 2));
+        assertEquals(2, log.slice(3, 10).size());
+        assertEquals(3, log.slice(2, 2).get(1).getIndex());
+        assertTrue(log.slice(5, 10).isEmpty());
+    }
+
+    @Test
+    void truncatesConflictingEntriesOnDisk() throws IOException {
+        log = open();
+        log.append(List.of(entry(1, 1, "a"), entry(2, 1, "b"), entry(3, 1, "c")));
+
+        // 与新Leader冲突：从索引2开始替换为任期2的日志
+        log.truncateFrom(2);
+        assertEquals(1, log.lastIndex());
+        log.append(List.of(entry(2, 2, "x")));
+
+        reopen();
+        assertEquals(2, log.lastIndex());
+        assertEquals(2, log.termAt(2));
+        assertEquals("x", log.get(2).getConfig().getContent());
+    }
+
+    @Test
+    void truncatesTornTailOnOpen() throws IOException {
+        log = open();
+        log.append(List.of(entry(1, 1, "a")));
+        log.close();
+
+        Path file = logDir.resolve("raft.log");
+        long validSize = Files.size(file);
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.APPEND)) {
+            out.write(new byte[]{0x7f, 0, 0, 0, 1, 2});
+        }
+
+        log = open();
+        assertEquals(1, log.lastIndex());
+        assertEquals(validSize, Files.size(file));
+        log.append(List.of(entry(2, 1, "b")));
+
+        reopen();
+        assertEquals(2, log.lastIndex());
+    }
+
+    @Test
+    void keepsLogUnchangedWhenAppendFails() throws IOException {
+        log = open();
+        log.append(List.of(entry(1, 1, "a")));
+
+        FileChannel channel = (FileChannel) ReflectionTestUtils.getField(log, "channel");
+        ReflectionTestUtils.setField(log, "channel", new FailingForceChannel(channel));
+        assertThrows(IOException.class, () -> log.append(List.of(entry(2, 1, "lost"))));
+        assertEquals(1, log.lastIndex());
+
+        // 重试同一索引的追加，文件中不留失败批次的残余
+        log.append(List.of(entry(2, 1, "b")));
+        log.truncateFrom(2);
+        log.append(List.of(entry(2, 2, "c")));
+
+        reopen();
+        assertEquals(2, log.lastIndex());
+        assertEquals("c", log.get(2).getConfig().getContent());
+    }
+
+    @Test
+    void persistsVoteAndAppliedIndex() throws IOException {
+        log = open();
+        assertEquals(0, log.getCurrentTerm());
+        assertNull(log.getVotedFor());
+        log.append(List.of(entry(1, 1, "a"), entry(2, 3, "b")));
+        log.saveVote(3, "node-2");
+        log.saveApplied(2);
+
+        reopen();
+        assertEquals(3, log.getCurrentTerm());
+        assertEquals("node-2", log.getVotedFor());
+        assertEquals(2, log.getLastApplied());
+    }
+
+    @Test
+    void clampsAppliedIndexToLoadedLog() throws IOException {
+        log = open();
+        log.append(List.of(entry(1, 1, "a"), entry(2, 1, "b")));
+        log.saveApplied(2);
+        log.truncateFrom(2);
+
+        reopen();
+        assertEquals(1, log.getLastApplied());
+    }
+
+    @Test
+    void compactsAppliedEntriesAndKeepsIndexes() throws IOException {
+        log = open();
+        log.append(List.of(entry(1, 1, "a"), entry(2, 1, "b"), entry(3, 2, "c"), entry(4, 2, "d")));
+        log.saveApplied(3);
+        long sizeBefore = Files.size(logDir.resolve("raft.log"));
+
+        log.compactTo(3);
+        assertEquals(3, log.getSnapshotIndex());
+        assertEquals(4, log.lastIndex());
+        assertEquals(2, log.termAt(3));
+        assertEquals(-1, log.termAt(2));
+        assertEquals("d", log.get(4).getConfig().getContent());
+        assertTrue(Files.size(logDir.resolve("raft.log")) < sizeBefore);
+
+        log.append(List.of(entry(5, 3, "e")));
+        log.truncateFrom(5);
+        log.append(List.of(entry(5, 3, "f")));
+
+        reopen();
+        assertEquals(3, log.getSnapshotIndex());
+        assertEquals(5, log.lastIndex());
+        assertEquals(3, log.lastTerm());
+        assertEquals("f", log.get(5).getConfig().getContent());
+        assertEquals(1, log.slice(5, 10).size());
+        assertEquals(3, log.getLastApplied());
+        assertThrows(IOException.class, () -> log.truncateFrom(3));
+    }
+
+    @Test
+    void skipsCompactedEntriesLeftInFile() throws IOException {
+        log = open();
+        log.append(List.of(entry(1, 1, "a"), entry(2, 1, "b"), entry(3, 1, "c")));
+        byte[] uncompacted = Files.readAllBytes(logDir.resolve("raft.log"));
+        log.saveApplied(2);
+        log.compactTo(2);
+        log.close();
+
+        // 模拟元数据已写入、日志文件还未重写时宕机
+        Files.write(logDir.resolve("raft.log"), uncompacted);
+        log = open();
+        assertEquals(2, log.getSnapshotIndex());
+        assertEquals(3, log.lastIndex());
+        assertEquals("c", log.get(3).getConfig().getContent());
+    }
+
+    @Test
+    void installsSnapshotKeepingMatchingSuffix() throws IOException {
+        log = open();
+        log.append(List.of(entry(1, 1, "a"), entry(2, 1, "b"), entry(3, 1, "c")));
+
+        log.installSnapshot(2, 1);
+        assertEquals(2, log.getSnapshotIndex());
+        assertEquals(3, log.lastIndex());
+        assertEquals(2, log.getLastApplied());
+
+        reopen();
+        assertEquals(3, log.lastIndex());
+        assertEquals("c", log.get(3).getConfig().getContent());
+    }
+
+    @Test
+    void installsSnapshotDiscardingConflictingLog() throws IOException {
+        log = open();
+        log.append(List.of(entry(1, 1, "a"), entry(2, 1, "b")));
+
+        // 快照位置超出本地日志，或与本地日志的任期不一致
+        log.installSnapshot(5, 3);
+        assertEquals(5, log.lastIndex());
+        assertEquals(3, log.lastTerm());
+        assertEquals(5, log.getLastApplied());
+        log.append(List.of(entry(6, 3, "x")));
+
+        reopen();
+        assertEquals(5, log.getSnapshotIndex());
+        assertEquals(6, log.lastIndex());
+        assertEquals("x", log.get(6).getConfig().getContent());
+    }
+
+    private RaftLog open() throws IOException {
+        RaftLog raftLog = new RaftLog();
+        ReflectionTestUtils.setField(raftLog, "logDir", logDir.toString());
+        raftLog.open();
+        return raftLog;
+    }
+
+    private void reopen() throws IOException {
+        log.close();
+        log = open();
+    }
+
+    private static RaftLogEntry entry(long index, long term, String content) {
+        ConfigItem config = new ConfigItem();
+        config.setDataId("app");
+        config.setGroup("DEFAULT_GROUP");
+        config.setContent(content);
+        config.setType("text");
+        return new RaftLogEntry(index, term, RaftLogEntry.CONFIG_PUBLISH, config, 1000 + index);
+    }
+}
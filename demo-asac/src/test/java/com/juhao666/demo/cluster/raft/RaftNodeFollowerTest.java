@@ -0,0 +1,159 @@
+package com.juhao666.demo.cluster.raft;
+
+import com.juhao666.demo.model.ConfigItem;
+import com.juhao666.demo.store.ConfigSnapshotStore;
+import com.juhao666.demo.store.ConfigWriteAheadLog;
+import com.juhao666.demo.store.MappedConfigContentStore;
+import com.juhao666.demo.store.RegistryStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Follower侧的RPC处理，不启动定时和复制线程
+ */
+class RaftNodeFollowerTest {
+
+    private static final String LEADER = "127.0.0.1:8848";
+
+    @TempDir
+    Path dataDir;
+
+    private ConfigWriteAheadLog wal;
+    private RaftLog raftLog;
+    private RegistryStore registryStore;
+    private RaftNode node;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        wal = new ConfigWriteAheadLog();
+        ReflectionTestUtils.setField(wal, "walDir", dataDir.resolve("wal").toString());
+        wal.init();
+        ConfigSnapshotStore snapshotStore = new ConfigSnapshotStore();
+        ReflectionTestUtils.setField(snapshotStore, "snapshotDir", dataDir.resolve("snapshot").toString());
+        snapshotStore.init();
+        MappedConfigContentStore contentStore = new MappedConfigContentStore();
+        contentStore.init();
+        registryStore = new RegistryStore();
+        ReflectionTestUtils.setField(registryStore, "configWal", wal);
+        ReflectionTestUtils.setField(registryStore, "configSnapshotStore", snapshotStore);
+        ReflectionTestUtils.setField(registryStore, "contentStore", contentStore);
+        registryStore.init();
+
+        raftLog = new RaftLog();
+        ReflectionTestUtils.setField(raftLog, "logDir", dataDir.resolve("raft").toString());
+        raftLog.open();
+
+        node = new RaftNode();
+        ReflectionTestUtils.setField(node, "raftLog", raftLog);
+        ReflectionTestUtils.setField(node, "registryStore", registryStore);
+        ReflectionTestUtils.setField(node, "configWal", wal);
+        ReflectionTestUtils.setField(node, "electionTimeout", 1500L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        raftLog.close();
+        wal.destroy();
+    }
+
+    @Test
+    void staleAppendDoesNotLowerCommitIndex() throws IOException {
+        AppendResponse response = node.handleAppend(append(0, 0,
+                List.of(entry(1, "a"), entry(2, "b"), entry(3, "c")), 3));
+        assertTrue(response.isSuccess());
+        assertEquals(3L, commitIndex());
+
+        // 延迟到达的旧请求只覆盖到索引1
+        response = node.handleAppend(append(0, 0, List.of(entry(1, "a")), 3));
+        assertTrue(response.isSuccess());
+        assertEquals(1, response.getMatchIndex());
+        assertEquals(3L, commitIndex());
+    }
+
+    @Test
+    void appendOverlappingCompactedLogIsAccepted() throws IOException {
+        node.handleAppend(append(0, 0, List.of(entry(1, "a"), entry(2, "b"), entry(3, "c")), 3));
+        raftLog.saveApplied(3);
+        raftLog.compactTo(3);
+
+        // Leader从索引2开始重发（prevLogIndex落在已压缩的范围内）
+        AppendResponse response = node.handleAppend(append(1, 1, List.of(entry(2, "b"), entry(3, "c"), entry(4, "d")), 4));
+        assertTrue(response.isSuccess());
+        assertEquals(4, response.getMatchIndex());
+        assertEquals(4, raftLog.lastIndex());
+        assertEquals("d", raftLog.get(4).getConfig().getContent());
+
+        // 完全落在已压缩范围内的心跳
+        response = node.handleAppend(append(1, 1, List.of(), 4));
+        assertTrue(response.isSuccess());
+    }
+
+    @Test
+    void installSnapshotReplacesConfigsAndLog() throws IOException {
+        node.handleAppend(append(0, 0, List.of(entry(1, "old")), 0));
+        registryStore.publishConfig(config("stale", "x", 0), 50);
+
+        InstallSnapshotRequest request = new InstallSnapshotRequest(1, LEADER, 10, 1,
+                List.of(config("app", "v10", 1000), config("db", "url=b", 900)));
+        AppendResponse response = node.handleInstallSnapshot(request);
+        assertTrue(response.isSuccess());
+        assertEquals(10, response.getMatchIndex());
+
+        assertEquals("v10", registryStore.getConfig("app", "DEFAULT_GROUP").getContent());
+        assertEquals(1000, registryStore.getConfig("app", "DEFAULT_GROUP").getUpdateTime());
+        assertEquals("url=b", registryStore.getConfig("db", "DEFAULT_GROUP").getContent());
+        assertNull(registryStore.getConfig("stale", "DEFAULT_GROUP"));
+        assertEquals(10, raftLog.getSnapshotIndex());
+        assertEquals(10, raftLog.lastIndex());
+        assertEquals(10L, ReflectionTestUtils.getField(node, "lastApplied"));
+        assertEquals(10L, commitIndex());
+
+        // 重复或过期的快照不会覆盖之后的状态
+        registryStore.publishConfig(config("app", "v11", 0), 1100);
+        ReflectionTestUtils.setField(node, "lastApplied", 11L);
+        assertTrue(node.handleInstallSnapshot(request).isSuccess());
+        assertEquals("v11", registryStore.getConfig("app", "DEFAULT_GROUP").getContent());
+    }
+
+    @Test
+    void rejectsRequestsFromStaleTerm() throws IOException {
+        raftLog.saveVote(5, null);
+        assertFalse(node.handleAppend(append(0, 0, List.of(entry(1, "a")), 1)).isSuccess());
+        assertFalse(node.handleInstallSnapshot(new InstallSnapshotRequest(1, LEADER, 3, 1, List.of())).isSuccess());
+        assertEquals(0, raftLog.lastIndex());
+    }
+
+    private long commitIndex() {
+        return (Long) ReflectionTestUtils.getField(node, "commitIndex");
+    }
+
+    private static AppendRequest append(long prevIndex, long prevTerm, List<RaftLogEntry> entries, long leaderCommit) {
+        return new AppendRequest(1, LEADER, prevIndex, prevTerm, entries, leaderCommit);
+    }
+
+    private static RaftLogEntry entry(long index, String content) {
+        return new RaftLogEntry(index, 1, RaftLogEntry.CONFIG_PUBLISH, config("app", content, 0), 100 + index);
+    }
+
+    private static ConfigItem config(String dataId, String content, long updateTime) {
+        ConfigItem config = new ConfigItem();
+        config.setDataId(dataId);
+        config.setGroup("DEFAULT_GROUP");
+        config.setContent(content);
+        config.setType("text");
+        config.setUpdateTime(updateTime);
+        return config;
+    }
+}
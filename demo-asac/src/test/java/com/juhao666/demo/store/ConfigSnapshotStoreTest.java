@@ -0,0 +1,94 @@
+package com.juhao666.demo.store;
+
+import com.juhao666.demo.model.ConfigItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfigSnapshotStoreTest {
+
+    @TempDir
+    Path snapshotDir;
+
+    private ConfigSnapshotStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new ConfigSnapshotStore();
+        ReflectionTestUtils.setField(store, "snapshotDir", snapshotDir.toString());
+        store.init();
+    }
+
+    @Test
+    void returnsZeroWithoutSnapshot() throws IOException {
+        List<ConfigItem> loaded = new ArrayList<>();
+        assertEquals(0, store.load(loaded::add));
+        assertTrue(loaded.isEmpty());
+    }
+
+    @Test
+    void loadsWhatWasWritten() throws IOException {
+        store.write(7, List.of(config("a", "内容一", 3), config("b", "", 1)));
+
+        List<ConfigItem> loaded = new ArrayList<>();
+        assertEquals(7, store.load(loaded::add));
+        assertEquals(2, loaded.size());
+        assertEquals("内容一", loaded.get(0).getContent());
+        assertEquals(3, loaded.get(0).getVersion());
+        assertEquals("md5-a", loaded.get(0).getMd5());
+        assertEquals("", loaded.get(1).getContent());
+    }
+
+    @Test
+    void replacesPreviousSnapshot() throws IOException {
+        store.write(3, List.of(config("a", "old", 1)));
+        store.write(9, List.of(config("a", "new", 2)));
+
+        List<ConfigItem> loaded = new ArrayList<>();
+        assertEquals(9, store.load(loaded::add));
+        assertEquals(1, loaded.size());
+        assertEquals("new", loaded.get(0).getContent());
+        assertEquals(List.of(snapshotDir.resolve("config.snapshot")), listFiles());
+    }
+
+    @Test
+    void rejectsCorruptedSnapshot() throws IOException {
+        store.write(5, List.of(config("a", "content", 1)));
+
+        Path file = snapshotDir.resolve("config.snapshot");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> store.load(config -> { }));
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (var files = Files.list(snapshotDir)) {
+            return files.toList();
+        }
+    }
+
+    private static ConfigItem config(String dataId, String content, long version) {
+        ConfigItem config = new ConfigItem();
+        config.setDataId(dataId);
+        config.setGroup("DEFAULT_GROUP");
+        config.setContent(content);
+        config.setType("text");
+        config.setVersion(version);
+        config.setMd5("md5-" + dataId);
+        config.setUpdateTime(100L);
+        return config;
+    }
+}
@@ -0,0 +1,167 @@
+package com.juhao666.demo.store;
+
+import com.juhao666.demo.model.ConfigItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConfigWriteAheadLogTest {
+
+    @TempDir
+    Path walDir;
+
+    private ConfigWriteAheadLog wal;
+
+    @AfterEach
+    void tearDown() {
+        if (wal != null) {
+            wal.destroy();
+        }
+    }
+
+    @Test
+    void replaysRecordsAfterReopen() throws Exception {
+        wal = open(new ArrayList<>());
+        wal.appendPublish(config("a", "1")).get();
+        wal.appendPublish(config("b", "2")).get();
+        wal.appendDelete("a", "DEFAULT_GROUP").get();
+        wal.destroy();
+
+        List<ConfigWriteAheadLog.Record> records = new ArrayList<>();
+        wal = open(records);
+        assertEquals(3, records.size());
+        assertEquals(ConfigWriteAheadLog.TYPE_PUBLISH, records.get(0).getType());
+        assertEquals("2", records.get(1).getConfig().getContent());
+        assertEquals(ConfigWriteAheadLog.TYPE_DELETE, records.get(2).getType());
+        assertEquals("a", records.get(2).getConfig().getDataId());
+        assertEquals(3, wal.getLastLsn());
+    }
+
+    @Test
+    void skipsRecordsCoveredBySnapshot() throws Exception {
+        wal = open(new ArrayList<>());
+        wal.appendPublish(config("a", "1")).get();
+        wal.appendPublish(config("b", "2")).get();
+        wal.destroy();
+
+        List<ConfigWriteAheadLog.Record> records = new ArrayList<>();
+        wal = new ConfigWriteAheadLog();
+        ReflectionTestUtils.setField(wal, "walDir", walDir.toString());
+        wal.init();
+        wal.replay(1, records::add);
+        assertEquals(1, records.size());
+        assertEquals("b", records.get(0).getConfig().getDataId());
+    }
+
+    @Test
+    void truncatesTornTailAndKeepsLaterAppends() throws Exception {
+        wal = open(new ArrayList<>());
+        wal.appendPublish(config("a", "1")).get();
+        wal.destroy();
+
+        // 模拟写入中途宕机：末尾只有半条记录
+        Path segment = onlySegment();
+        long validSize = Files.size(segment);
+        try (OutputStream out = Files.newOutputStream(segment, StandardOpenOption.APPEND)) {
+            out.write(new byte[]{0, 0, 0, 40, 1, 2, 3});
+        }
+
+        List<ConfigWriteAheadLog.Record> records = new ArrayList<>();
+        wal = open(records);
+        assertEquals(1, records.size());
+        assertEquals(validSize, Files.size(segment));
+
+        wal.appendPublish(config("b", "2")).get();
+        wal.destroy();
+
+        records.clear();
+        wal = open(records);
+        assertEquals(2, records.size());
+        assertEquals("b", records.get(1).getConfig().getDataId());
+    }
+
+    @Test
+    void treatsOversizedLengthFieldAsTornRecord() throws Exception {
+        wal = open(new ArrayList<>());
+        wal.appendPublish(config("a", "1")).get();
+        wal.destroy();
+
+        // 损坏的长度字段远大于文件剩余大小，不能按它分配缓冲区
+        Path segment = onlySegment();
+        long validSize = Files.size(segment);
+        try (DataOutputStream out = new DataOutputStream(
+                Files.newOutputStream(segment, StandardOpenOption.APPEND))) {
+            out.writeInt(Integer.MAX_VALUE);
+            out.writeInt(0);
+        }
+
+        List<ConfigWriteAheadLog.Record> records = new ArrayList<>();
+        wal = open(records);
+        assertEquals(1, records.size());
+        assertEquals(validSize, Files.size(segment));
+    }
+
+    @Test
+    void discardsFailedBatchSoLaterRecordsReplay() throws Exception {
+        wal = open(new ArrayList<>());
+        wal.appendPublish(config("a", "1")).get();
+
+        // 下一次fsync失败：数据已写入文件，但批次必须被截断
+        FileChannel channel = (FileChannel) ReflectionTestUtils.getField(wal, "channel");
+        ReflectionTestUtils.setField(wal, "channel", new FailingForceChannel(channel));
+        assertThrows(ExecutionException.class, () -> wal.appendPublish(config("lost", "x")).get());
+
+        wal.appendPublish(config("b", "2")).get();
+        wal.destroy();
+
+        List<ConfigWriteAheadLog.Record> records = new ArrayList<>();
+        wal = open(records);
+        assertEquals(2, records.size());
+        assertEquals("a", records.get(0).getConfig().getDataId());
+        assertEquals("b", records.get(1).getConfig().getDataId());
+    }
+
+    private ConfigWriteAheadLog open(List<ConfigWriteAheadLog.Record> records) throws IOException {
+        ConfigWriteAheadLog log = new ConfigWriteAheadLog();
+        ReflectionTestUtils.setField(log, "walDir", walDir.toString());
+        log.init();
+        log.replay(0, records::add);
+        return log;
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(walDir)) {
+            List<Path> segments = files.filter(p -> p.getFileName().toString().endsWith(".wal")).toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    private static ConfigItem config(String dataId, String content) {
+        ConfigItem config = new ConfigItem();
+        config.setDataId(dataId);
+        config.setGroup("DEFAULT_GROUP");
+        config.setContent(content);
+        config.setType("text");
+        config.setVersion(1);
+        config.setMd5("md5-" + content);
+        config.setUpdateTime(1L);
+        return config;
+    }
+}
@@ -0,0 +1,110 @@
+package com.juhao666.demo.store;
+
+import com.juhao666.demo.model.ServiceInstance;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeartbeatTimingWheelTest {
+
+    private static final long TIMEOUT = 5000;
+
+    @Test
+    void expiresInstanceOnceDeadlinePasses() {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(1000, 64);
+        ServiceInstance instance = instance("a", 10_000);
+        wheel.schedule(instance, 10_000 + TIMEOUT);
+
+        assertTrue(wheel.advance(14_000, ServiceInstance::getLastHeartbeatTime, TIMEOUT).isEmpty());
+        assertEquals(List.of(instance), wheel.advance(15_000, ServiceInstance::getLastHeartbeatTime, TIMEOUT));
+        assertTrue(wheel.advance(30_000, ServiceInstance::getLastHeartbeatTime, TIMEOUT).isEmpty());
+    }
+
+    @Test
+    void reschedulesInstanceWithNewerHeartbeat() {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(1000, 64);
+        ServiceInstance instance = instance("a", 10_000);
+        wheel.schedule(instance, 10_000 + TIMEOUT);
+        wheel.advance(10_000, ServiceInstance::getLastHeartbeatTime, TIMEOUT);
+
+        // 心跳路径只刷新时间，不触碰时间轮
+        instance.setLastHeartbeatTime(13_000);
+        assertTrue(wheel.advance(15_000, ServiceInstance::getLastHeartbeatTime, TIMEOUT).isEmpty());
+        assertTrue(wheel.advance(17_000, ServiceInstance::getLastHeartbeatTime, TIMEOUT).isEmpty());
+        assertEquals(List.of(instance), wheel.advance(18_000, ServiceInstance::getLastHeartbeatTime, TIMEOUT));
+    }
+
+    @Test
+    void dropsRemovedInstance() {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(1000, 64);
+        ServiceInstance instance = instance("a", 10_000);
+        wheel.schedule(instance, 10_000 + TIMEOUT);
+
+        assertTrue(wheel.advance(15_000, i -> -1, TIMEOUT).isEmpty());
+        assertTrue(wheel.advance(100_000, ServiceInstance::getLastHeartbeatTime, TIMEOUT).isEmpty());
+    }
+
+    @Test
+    void deadlineBeyondOneRoundIsCheckedEarlyAndKept() {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(1000, 8);
+        ServiceInstance instance = instance("a", 0);
+        wheel.schedule(instance, 20_000);
+
+        assertTrue(wheel.advance(19_000, i -> 15_000, TIMEOUT).isEmpty());
+        assertEquals(List.of(instance), wheel.advance(20_000, i -> 15_000, TIMEOUT));
+    }
+
+    /**
+     * 并发挂入的实例即使落在正被换出的槽位上，也必须且只能过期一次
+     */
+    @Test
+    void concurrentScheduleDuringAdvanceIsNeitherLostNorDuplicated() throws Exception {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(1, 64);
+        AtomicLong clock = new AtomicLong(1_000);
+        int threads = 4;
+        int perThread = 20_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        List<ServiceInstance> expired = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            Thread scheduler = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // deadline取当前时间，正好落在advance正在处理的槽位附近
+                    wheel.schedule(instance("i-" + (offset + i), 0), clock.get());
+                }
+                done.countDown();
+            });
+            scheduler.start();
+        }
+        while (done.getCount() > 0) {
+            expired.addAll(wheel.advance(clock.incrementAndGet(), i -> 0, 1));
+        }
+        // 再推进两圈，处理被挂到下一圈的实例
+        long end = clock.get() + 128;
+        while (clock.get() < end) {
+            expired.addAll(wheel.advance(clock.incrementAndGet(), i -> 0, 1));
+        }
+
+        Set<String> ids = new HashSet<>();
+        for (ServiceInstance instance : expired) {
+            assertTrue(ids.add(instance.getInstanceId()), "duplicate expiry: " + instance.getInstanceId());
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    private static ServiceInstance instance(String id, long heartbeatTime) {
+        ServiceInstance instance = new ServiceInstance();
+        instance.setInstanceId(id);
+        instance.setLastHeartbeatTime(heartbeatTime);
+        return instance;
+    }
+}
@@ -0,0 +1,186 @@
+package com.juhao666.demo.store;
+
+import com.juhao666.demo.model.ConfigItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegistryStoreConfigTest {
+
+    @TempDir
+    Path dataDir;
+
+    private ConfigWriteAheadLog wal;
+    private RegistryStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = openStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        wal.destroy();
+    }
+
+    @Test
+    void failedPublishKeepsPreviousConfig() throws IOException {
+        store.publishConfig(config("app", "v1"));
+        failNextFsync();
+
+        assertThrows(IllegalStateException.class, () -> store.publishConfig(config("app", "v2")));
+        ConfigItem current = store.getConfig("app", "DEFAULT_GROUP");
+        assertEquals("v1", current.getContent());
+        assertEquals(1, current.getVersion());
+
+        // 重启后同样看到发布之前的状态
+        restart();
+        assertEquals("v1", store.getConfig("app", "DEFAULT_GROUP").getContent());
+    }
+
+    @Test
+    void failedFirstPublishLeavesConfigAbsent() throws IOException {
+        failNextFsync();
+
+        assertThrows(IllegalStateException.class, () -> store.publishConfig(config("app", "v1")));
+        assertNull(store.getConfig("app", "DEFAULT_GROUP"));
+
+        restart();
+        assertNull(store.getConfig("app", "DEFAULT_GROUP"));
+    }
+
+    @Test
+    void publishIsNotVisibleBeforeFsync() throws Exception {
+        store.publishConfig(config("app", "v1"));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FileChannel channel = (FileChannel) ReflectionTestUtils.getField(wal, "channel");
+        ReflectionTestUtils.setField(wal, "channel", new FailingForceChannel(channel, entered, release));
+
+        CompletableFuture<ConfigItem> publish = CompletableFuture.supplyAsync(() -> store.publishConfig(config("app", "v2")));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // 记录已写入、fsync尚未完成：读取方仍看到旧配置，之后失败也不会看到被撤销的值
+        assertEquals("v1", store.getConfig("app", "DEFAULT_GROUP").getContent());
+        assertEquals(1, store.getConfigMetadata("app", "DEFAULT_GROUP").getVersion());
+
+        release.countDown();
+        assertThrows(ExecutionException.class, () -> publish.get(5, TimeUnit.SECONDS));
+        assertEquals("v1", store.getConfig("app", "DEFAULT_GROUP").getContent());
+
+        // 失败的变更不影响之后的发布
+        assertEquals("v3", store.publishConfig(config("app", "v3")).getContent());
+        assertEquals("v3", store.getConfig("app", "DEFAULT_GROUP").getContent());
+    }
+
+    @Test
+    void snapshotDeletesCoveredSegmentsAndRecoversWithWalTail() throws Exception {
+        store.publishConfig(config("app", "v1"));
+        store.publishConfig(config("db", "url=a"));
+        List<Path> before = walSegments();
+        assertEquals(1, before.size());
+
+        assertTrue(store.snapshotConfigs());
+        assertFalse(store.snapshotConfigs());
+        List<Path> after = walSegments();
+        assertEquals(1, after.size());
+        assertFalse(after.contains(before.get(0)));
+
+        // 快照之后的变更只在新段中
+        store.publishConfig(config("app", "v2"));
+        store.deleteConfig("db", "DEFAULT_GROUP");
+
+        restart();
+        ConfigItem app = store.getConfig("app", "DEFAULT_GROUP");
+        assertEquals("v2", app.getContent());
+        assertEquals(2, app.getVersion());
+        assertNull(store.getConfig("db", "DEFAULT_GROUP"));
+    }
+
+    @Test
+    void reapplyingSameRaftEntryKeepsVersion() throws IOException {
+        // 同一条Raft日志重复应用（重启后回放、应用失败后重试）
+        ConfigItem first = store.publishConfig(config("app", "v1"), 1000);
+        ConfigItem again = store.publishConfig(config("app", "v1"), 1000);
+        assertEquals(1, first.getVersion());
+        assertEquals(1, again.getVersion());
+
+        ConfigItem next = store.publishConfig(config("app", "v2"), 2000);
+        assertEquals(2, next.getVersion());
+        assertEquals(2, store.publishConfig(config("app", "v2"), 2000).getVersion());
+
+        restart();
+        assertEquals(2, store.publishConfig(config("app", "v2"), 2000).getVersion());
+        assertEquals(2000, store.getConfig("app", "DEFAULT_GROUP").getUpdateTime());
+    }
+
+    @Test
+    void rejectsSeparatorInDataIdOrGroup() {
+        assertThrows(IllegalArgumentException.class, () -> store.publishConfig(config("app:v2", "x")));
+        ConfigItem grouped = config("app", "x");
+        grouped.setGroup("team:a");
+        assertThrows(IllegalArgumentException.class, () -> store.publishConfig(grouped));
+        assertTrue(store.getAllConfigs().isEmpty());
+    }
+
+    private List<Path> walSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir.resolve("wal"))) {
+            return files.toList();
+        }
+    }
+
+    private void failNextFsync() {
+        FileChannel channel = (FileChannel) ReflectionTestUtils.getField(wal, "channel");
+        ReflectionTestUtils.setField(wal, "channel", new FailingForceChannel(channel));
+    }
+
+    private void restart() throws IOException {
+        wal.destroy();
+        store = openStore();
+    }
+
+    private RegistryStore openStore() throws IOException {
+        wal = new ConfigWriteAheadLog();
+        ReflectionTestUtils.setField(wal, "walDir", dataDir.resolve("wal").toString());
+        wal.init();
+        ConfigSnapshotStore snapshotStore = new ConfigSnapshotStore();
+        ReflectionTestUtils.setField(snapshotStore, "snapshotDir", dataDir.resolve("snapshot").toString());
+        snapshotStore.init();
+        MappedConfigContentStore contentStore = new MappedConfigContentStore();
+        contentStore.init();
+
+        RegistryStore registryStore = new RegistryStore();
+        ReflectionTestUtils.setField(registryStore, "configWal", wal);
+        ReflectionTestUtils.setField(registryStore, "configSnapshotStore", snapshotStore);
+        ReflectionTestUtils.setField(registryStore, "contentStore", contentStore);
+        registryStore.init();
+        return registryStore;
+    }
+
+    private static ConfigItem config(String dataId, String content) {
+        ConfigItem config = new ConfigItem();
+        config.setDataId(dataId);
+        config.setContent(content);
+        config.setType("text");
+        return config;
+    }
+}
@@ -0,0 +1,101 @@
+package com.juhao666.demo.store;
+
+import com.juhao666.demo.model.ServiceDelta;
+import com.juhao666.demo.model.ServiceInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 增量接口与 /instance/list 一致只下发健康实例
+ */
+class RegistryStoreDeltaTest {
+
+    private static final long HEARTBEAT_TIMEOUT = 30000;
+
+    @TempDir
+    Path dataDir;
+
+    private ConfigWriteAheadLog wal;
+    private RegistryStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        wal = new ConfigWriteAheadLog();
+        ReflectionTestUtils.setField(wal, "walDir", dataDir.resolve("wal").toString());
+        wal.init();
+        ConfigSnapshotStore snapshotStore = new ConfigSnapshotStore();
+        ReflectionTestUtils.setField(snapshotStore, "snapshotDir", dataDir.resolve("snapshot").toString());
+        snapshotStore.init();
+        MappedConfigContentStore contentStore = new MappedConfigContentStore();
+        contentStore.init();
+
+        store = new RegistryStore();
+        ReflectionTestUtils.setField(store, "configWal", wal);
+        ReflectionTestUtils.setField(store, "configSnapshotStore", snapshotStore);
+        ReflectionTestUtils.setField(store, "contentStore", contentStore);
+        ReflectionTestUtils.setField(store, "heartbeatTimeout", HEARTBEAT_TIMEOUT);
+        store.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        wal.destroy();
+    }
+
+    @Test
+    void excludesTimedOutInstances() {
+        ServiceInstance healthy = store.registerInstance(instance(8081));
+        ServiceInstance timedOut = store.registerInstance(instance(8082));
+        expireHeartbeat(timedOut);
+
+        ServiceDelta full = store.getDelta("order", -1);
+        assertTrue(full.isFull());
+        assertEquals(List.of(healthy), full.getInstances());
+
+        ServiceDelta delta = store.getDelta("order", 0);
+        assertEquals(List.of(healthy), delta.getAdded());
+        assertEquals(List.of(timedOut.getInstanceId()), delta.getRemoved());
+    }
+
+    @Test
+    void heartbeatAfterTimeoutIsReportedAsChange() {
+        ServiceInstance instance = store.registerInstance(instance(8081));
+        expireHeartbeat(instance);
+        long revision = store.getRegistryRevision();
+        assertEquals(List.of(instance.getInstanceId()), store.getDelta("order", 0).getRemoved());
+
+        // 被摘除之前恢复心跳：订阅方重新收到该实例
+        assertTrue(store.heartbeat(instance.getInstanceId()));
+        assertTrue(store.getRegistryRevision() > revision);
+        ServiceDelta delta = store.getDelta("order", revision);
+        assertEquals(List.of(instance), delta.getChanged());
+        assertTrue(delta.getRemoved().isEmpty());
+
+        // 正常心跳不产生新版本
+        long recovered = store.getRegistryRevision();
+        assertTrue(store.heartbeat(instance.getInstanceId()));
+        assertEquals(recovered, store.getRegistryRevision());
+    }
+
+    private static void expireHeartbeat(ServiceInstance instance) {
+        instance.setLastHeartbeatTime(System.currentTimeMillis() - HEARTBEAT_TIMEOUT - 1000);
+    }
+
+    private static ServiceInstance instance(int port) {
+        ServiceInstance instance = new ServiceInstance();
+        instance.setServiceName("order");
+        instance.setIp("127.0.0.1");
+        instance.setPort(port);
+        return instance;
+    }
+}
@@ -1,10 +1,10 @@
 package com.juhao666.demo.order.controller;
 
+import com.juhao666.asac.loadbalancer.LoadBalancer;
 import com.juhao666.asac.model.Result;
 import com.juhao666.asac.model.Response;
 import com.juhao666.asac.model.ServiceInstance;
 import com.juhao666.demo.order.model.Order;
-import com.juhao666.demo.order.service.DiscoverService;
 import com.juhao666.demo.order.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -22,7 +22,7 @@ public class OrderController {
     OrderService orderService;
 
     @Autowired
-    DiscoverService discoverService;
+    LoadBalancer loadBalancer;
 
     @Autowired
     RestTemplate restTemplate;
@@ -58,28 +58,20 @@ public class OrderController {
         }
 
         // 尝试获取用户信息（模拟商品创建者）
-        // 首先发现用户服务
-        Result discoveryResult = discoverService.findActiveService();
-        if (!discoveryResult.isSuccess()) {
-            return Response.success("获取商品成功，但无法获取用户信息", order);
-        }
-
-        // 获取用户服务实例
-        List<ServiceInstance> userInstances = (List<ServiceInstance>) discoveryResult.getData();
-        if (userInstances == null || userInstances.isEmpty()) {
+        // 从服务发现缓存中按负载均衡策略选择一个用户服务实例 todo  使用指定的user-service
+        ServiceInstance userInstance = loadBalancer.choose("user-service");
+        if (userInstance == null) {
             return Response.success("获取商品成功，但用户服务不可用", order);
         }
 
-        // 使用第一个用户服务实例 todo  使用指定的user-service
-        ServiceInstance userInstance = userInstances.get(0);
         String userServiceUrl = "http://" + userInstance.getIp() + ":" + userInstance.getPort() + "/api";
         System.out.printf("调用用户服务 url= %s %n", userServiceUrl);
         try {
             // 调用用户服务获取用户信息
-            Result userResult = restTemplate.getForObject(
+            Result userResult = loadBalancer.execute(userInstance, instance -> restTemplate.getForObject(
                     userServiceUrl + "/users/1",
                     Result.class
-            );
+            ));
 
             Map<String, Object> detail = new HashMap<>();
             detail.put("order", order);